@@ -0,0 +1,68 @@
+package com.mindex.challenge.perf;
+
+import com.mindex.challenge.ChallengeApplication;
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.index.OrgGraphIndex;
+import com.mindex.challenge.service.EmployeeService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+/**
+ * Starts the application against the embedded MongoServer from MongoConfig and loads a synthetic organization into
+ * it. The traversal parameter selects challenge.reporting-structure.traversal, so strategies can be compared with
+ * -p traversal=index,batched,recursive,fork-join.
+ */
+@State(Scope.Benchmark)
+public class ChallengeState {
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000"})
+    public int orgSize;
+
+    @Param({"4", "16"})
+    public int depth;
+
+    @Param({"4", "32"})
+    public int fanOut;
+
+    @Param({"index"})
+    public String traversal;
+
+    public ConfigurableApplicationContext context;
+    public EmployeeService employeeService;
+    public SyntheticOrg org;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(ChallengeApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                // Passed as arguments so that they take precedence over application.properties
+                .run("--logging.level.com.mindex=WARN", "--challenge.reporting-structure.traversal=" + traversal);
+        employeeService = context.getBean(EmployeeService.class);
+
+        org = new SyntheticOrg(orgSize, depth, fanOut);
+        EmployeeRepository employeeRepository = context.getBean(EmployeeRepository.class);
+        List<Employee> employees = org.getEmployees();
+        for (int i = 0; i < employees.size(); i += INSERT_BATCH_SIZE) {
+            employeeRepository.insert(employees.subList(i, Math.min(i + INSERT_BATCH_SIZE, employees.size())));
+        }
+        context.getBean(OrgGraphIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
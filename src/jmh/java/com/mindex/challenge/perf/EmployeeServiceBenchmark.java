@@ -0,0 +1,55 @@
+package com.mindex.challenge.perf;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads pick a random employee, so with the default cache size the larger organizations include cache misses.
+ * Creates add to the database for the length of the trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    @Benchmark
+    public Employee read(ChallengeState state) {
+        return state.employeeService.read(randomEmployee(state).getEmployeeId());
+    }
+
+    @Benchmark
+    public Employee create(ChallengeState state) {
+        Employee employee = new Employee();
+        employee.setFirstName("New");
+        employee.setLastName("Hire");
+        employee.setPosition("Developer I");
+        employee.setDepartment("Engineering");
+        return state.employeeService.create(employee);
+    }
+
+    @Benchmark
+    public Compensation createCompensation(ChallengeState state) {
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(randomEmployee(state).getEmployeeId());
+        compensation.setSalary(ThreadLocalRandom.current().nextInt(50_000, 250_000));
+        compensation.setEffectiveDate(new Date());
+        return state.employeeService.createCompensation(compensation);
+    }
+
+    private static Employee randomEmployee(ChallengeState state) {
+        return state.org.get(ThreadLocalRandom.current().nextInt(state.org.size()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.mindex.challenge.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mindex.challenge.config.CompactEmployeeModule;
+import com.mindex.challenge.data.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same manager as EmployeeJsonBenchmark, written and read in each wire format the API negotiates. The payload
+ * size of each format is printed once per trial, ahead of the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmployeeWireFormatBenchmark {
+
+    @Param({"json", "compact-json", "smile", "cbor"})
+    public String format;
+
+    @Param({"10", "1000"})
+    public int directReports;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Employee employee;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = objectMapper(format);
+        writer = objectMapper.writerFor(Employee.class);
+        reader = objectMapper.readerFor(Employee.class);
+
+        employee = new SyntheticOrg(directReports + 1, 2, Math.max(directReports, 1)).getRoot();
+        payload = writer.writeValueAsBytes(employee);
+        System.out.println(format + " payload with " + directReports + " direct reports: " + payload.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public Employee deserialize() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    private static ObjectMapper objectMapper(String format) {
+        switch (format) {
+            case "json":
+                return new ObjectMapper();
+            case "compact-json":
+                return new ObjectMapper().registerModule(new CompactEmployeeModule());
+            case "smile":
+                return new ObjectMapper(new SmileFactory());
+            case "cbor":
+                return new ObjectMapper(new CBORFactory());
+            default:
+                throw new IllegalArgumentException("Unknown format [" + format + "]");
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.mindex.challenge.perf;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a mix of EmployeeController calls against a running application and reports throughput and latency
+ * percentiles for each kind of call.
+ *
+ * Options are passed as --name=value:
+ * <ul>
+ *     <li>url (default http://localhost:8080)</li>
+ *     <li>employees (default build/org/employees.json), the seed file the application was started with; calls pick
+ *     employees from it at random</li>
+ *     <li>mix (default read:60,reporting-structure:15,compensation:10,management-chain:5,update:5,create-compensation:5)
+ *     gives the relative weight of each call</li>
+ *     <li>threads (default 16), warmup (default 10) and duration (default 60) in seconds</li>
+ *     <li>rate (default 0) in calls per second across all threads. With a rate each call has a scheduled start and its
+ *     latency is measured from then, so a stalled server is not hidden by the driver slowing down; with 0 every
+ *     thread sends its next call as soon as the last one returns.</li>
+ *     <li>report, a file to also write the results to as JSON</li>
+ * </ul>
+ */
+public class LoadDriver {
+    private static final List<String> CALLS = Arrays.asList(
+            "read", "reporting-structure", "management-chain", "compensation", "update", "create-compensation");
+    private static final String DEFAULT_MIX =
+            "read:60,reporting-structure:15,compensation:10,management-chain:5,update:5,create-compensation:5";
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final String url;
+    private final List<String> employeeIds;
+    private final List<Operation> operations = new ArrayList<>();
+    private final int totalWeight;
+
+    private volatile boolean recording;
+
+    public LoadDriver(String url, List<String> employeeIds, String mix) {
+        this.url = url;
+        this.employeeIds = employeeIds;
+
+        int weight = 0;
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.split(":");
+            Operation operation = new Operation(nameAndWeight[0].trim(), Integer.parseInt(nameAndWeight[1].trim()));
+            if (!CALLS.contains(operation.name)) {
+                throw new IllegalArgumentException("Unknown call [" + operation.name + "] in the mix, expected one of " + CALLS);
+            }
+            operations.add(operation);
+            weight += operation.weight;
+        }
+        totalWeight = weight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = OrgGenerator.parseOptions(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", Integer.toString(threads));
+
+        List<String> employeeIds = readEmployeeIds(new File(options.getOrDefault("employees", "build/org/employees.json")));
+        LoadDriver driver = new LoadDriver(options.getOrDefault("url", "http://localhost:8080"), employeeIds,
+                options.getOrDefault("mix", DEFAULT_MIX));
+
+        System.out.println("Driving " + driver.url + " with " + threads + " threads over " + employeeIds.size()
+                + " employees" + (rate > 0 ? " at " + rate + " calls/s" : ""));
+        Map<String, Object> results = driver.run(threads, warmup, duration, rate);
+
+        if (options.containsKey("report")) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.get("report")), results);
+        }
+    }
+
+    public Map<String, Object> run(int threads, int warmupSeconds, int durationSeconds, double rate) throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = recordFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong tickets = new AtomicLong();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                while (true) {
+                    long scheduled = System.nanoTime();
+                    if (rate > 0) {
+                        scheduled = start + (long) (tickets.getAndIncrement() * 1_000_000_000L / rate);
+                        long wait = scheduled - System.nanoTime();
+                        if (wait > 0) {
+                            sleep(wait);
+                        }
+                    }
+                    if (scheduled >= end) {
+                        return;
+                    }
+
+                    Operation operation = pickOperation();
+                    boolean succeeded = call(operation.name, employeeIds.get(ThreadLocalRandom.current().nextInt(employeeIds.size())));
+                    if (recording) {
+                        operation.record(System.nanoTime() - scheduled, succeeded);
+                    }
+                }
+            }, "load-driver-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        sleep(recordFrom - System.nanoTime());
+        for (Operation operation : operations) {
+            operation.latencies.reset();
+        }
+        recording = true;
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        recording = false;
+
+        return report(durationSeconds);
+    }
+
+    private Map<String, Object> report(int durationSeconds) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+
+        System.out.println(String.format("%-22s %10s %8s %10s %10s %10s %10s", "call", "calls/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Operation operation : operations) {
+            Histogram histogram = operation.latencies.getIntervalHistogram();
+            total.add(histogram);
+            totalErrors += operation.errors.sum();
+            results.put(operation.name, summarize(operation.name, histogram, operation.errors.sum(), durationSeconds));
+        }
+        results.put("total", summarize("total", total, totalErrors, durationSeconds));
+
+        return results;
+    }
+
+    private static Map<String, Object> summarize(String name, Histogram histogram, long errors, int durationSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("calls", histogram.getTotalCount());
+        summary.put("callsPerSecond", (double) histogram.getTotalCount() / durationSeconds);
+        summary.put("errors", errors);
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1e6);
+        summary.put("p90Millis", histogram.getValueAtPercentile(90) / 1e6);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1e6);
+        summary.put("maxMillis", histogram.getMaxValue() / 1e6);
+
+        System.out.println(String.format("%-22s %10.1f %8d %10.2f %10.2f %10.2f %10.2f", name, summary.get("callsPerSecond"), errors,
+                summary.get("p50Millis"), summary.get("p90Millis"), summary.get("p99Millis"), summary.get("maxMillis")));
+        return summary;
+    }
+
+    private Operation pickOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            pick -= operation.weight;
+            if (pick < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("No operation for the pick");
+    }
+
+    private boolean call(String name, String employeeId) {
+        try {
+            switch (name) {
+                case "read":
+                    restTemplate.getForObject(url + "/employee/{id}", Employee.class, employeeId);
+                    return true;
+                case "reporting-structure":
+                    restTemplate.getForObject(url + "/employee/reporting-structure/{id}", String.class, employeeId);
+                    return true;
+                case "management-chain":
+                    restTemplate.getForObject(url + "/employee/{id}/management-chain", String.class, employeeId);
+                    return true;
+                case "compensation":
+                    restTemplate.getForObject(url + "/employee/compensation/{id}", String.class, employeeId);
+                    return true;
+                case "update":
+                    Employee employee = restTemplate.getForObject(url + "/employee/{id}", Employee.class, employeeId);
+                    employee.setPosition("Level " + ThreadLocalRandom.current().nextInt(10));
+                    restTemplate.put(url + "/employee/{id}", employee, employeeId);
+                    return true;
+                case "create-compensation":
+                    Compensation compensation = new Compensation();
+                    compensation.setEmployee(employeeId);
+                    compensation.setSalary(ThreadLocalRandom.current().nextInt(50_000, 250_000));
+                    compensation.setEffectiveDate(new Date());
+                    restTemplate.postForObject(url + "/employee/compensation", compensation, String.class);
+                    return true;
+                default:
+                    throw new IllegalStateException("Unknown call [" + name + "]");
+            }
+        } catch (RestClientException e) {
+            return false;
+        }
+    }
+
+    private static List<String> readEmployeeIds(File file) throws IOException {
+        List<String> employeeIds = new ArrayList<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of employees in " + file);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                employeeIds.add(objectMapper.readValue(parser, Employee.class).getEmployeeId());
+            }
+        }
+
+        if (employeeIds.isEmpty()) {
+            throw new IOException("No employees in " + file);
+        }
+        return employeeIds;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Operation {
+        private final String name;
+        private final int weight;
+        private final Recorder latencies = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        Operation(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        void record(long nanos, boolean succeeded) {
+            latencies.recordValue(nanos);
+            if (!succeeded) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mindex.challenge.perf;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a synthetic organization as seed files for DataBootstrap: an array of employees, and optionally an array of
+ * compensation entries for challenge.bootstrap.compensation-location.
+ *
+ * Options are passed as --name=value:
+ * <ul>
+ *     <li>size (default 200000), depth (default 12) and fan-out (default 8) shape the organization</li>
+ *     <li>fan-out-shape (default 0 for an even fan-out) skews reports per manager, see {@link SyntheticOrg}</li>
+ *     <li>compensation-history (default 3) entries per compensated employee, one a year; 0 writes no compensation</li>
+ *     <li>compensated (default 0.9) is the fraction of employees that have any compensation</li>
+ *     <li>seed (default 1) and output (default build/org)</li>
+ * </ul>
+ */
+public class OrgGenerator {
+    private static final long YEAR_MILLIS = TimeUnit.DAYS.toMillis(365);
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int size = Integer.parseInt(options.getOrDefault("size", "200000"));
+        int depth = Integer.parseInt(options.getOrDefault("depth", "12"));
+        int fanOut = Integer.parseInt(options.getOrDefault("fan-out", "8"));
+        double fanOutShape = Double.parseDouble(options.getOrDefault("fan-out-shape", "0"));
+        int compensationHistory = Integer.parseInt(options.getOrDefault("compensation-history", "3"));
+        double compensated = Double.parseDouble(options.getOrDefault("compensated", "0.9"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        File output = new File(options.getOrDefault("output", "build/org"));
+
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Could not create " + output);
+        }
+
+        long start = System.currentTimeMillis();
+        SyntheticOrg org = new SyntheticOrg(size, depth, fanOut, fanOutShape, seed);
+        ObjectMapper objectMapper = new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        File employees = new File(output, "employees.json");
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(employees, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (Employee employee : org.getEmployees()) {
+                objectMapper.writeValue(generator, employee);
+            }
+            generator.writeEndArray();
+        }
+        System.out.println("Wrote " + org.size() + " employees to " + employees);
+
+        if (compensationHistory > 0) {
+            File compensation = new File(output, "compensation.json");
+            long entries = writeCompensation(objectMapper, org, compensation, compensationHistory, compensated, new Random(seed));
+            System.out.println("Wrote " + entries + " compensation entries to " + compensation);
+            System.out.println("Run with --challenge.bootstrap.location=file:" + employees
+                    + " --challenge.bootstrap.compensation-location=file:" + compensation);
+        } else {
+            System.out.println("Run with --challenge.bootstrap.location=file:" + employees);
+        }
+        System.out.println("Generated in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Salaries start lower the further an employee is from the root, vary by up to 15% either way, and rise by about
+     * 4% with each earlier entry in an employee's history. The latest entry took effect within the last year.
+     */
+    private static long writeCompensation(ObjectMapper objectMapper, SyntheticOrg org, File file, int history,
+                                          double compensated, Random random) throws IOException {
+        long now = System.currentTimeMillis();
+        long entries = 0;
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (int i = 0; i < org.size(); i++) {
+                if (random.nextDouble() >= compensated) {
+                    continue;
+                }
+
+                double salary = Math.max(45_000, 250_000 * Math.pow(0.85, org.getLevel(i))) * (0.85 + 0.3 * random.nextDouble());
+                long effectiveDate = now - (long) (random.nextDouble() * YEAR_MILLIS);
+
+                for (int entry = 0; entry < history; entry++) {
+                    Compensation compensation = new Compensation();
+                    compensation.setEmployee(org.get(i).getEmployeeId());
+                    compensation.setSalary(Math.round(salary));
+                    compensation.setEffectiveDate(new Date(effectiveDate));
+                    objectMapper.writeValue(generator, compensation);
+                    entries++;
+
+                    salary /= 1.04;
+                    effectiveDate -= YEAR_MILLIS;
+                }
+            }
+            generator.writeEndArray();
+        }
+
+        return entries;
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
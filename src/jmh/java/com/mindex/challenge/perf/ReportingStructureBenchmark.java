@@ -0,0 +1,30 @@
+package com.mindex.challenge.perf;
+
+import com.mindex.challenge.data.ReportingStructure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReportingStructureBenchmark {
+
+    @Benchmark
+    public ReportingStructure generateForRoot(ChallengeState state) {
+        return state.employeeService.generateReportingStructure(state.org.getRoot().getEmployeeId());
+    }
+
+    @Benchmark
+    public ReportingStructure generateForMiddleManager(ChallengeState state) {
+        return state.employeeService.generateReportingStructure(state.org.getMiddleManager().getEmployeeId());
+    }
+}
@@ -0,0 +1,179 @@
+package com.mindex.challenge.perf;
+
+import com.mindex.challenge.data.Employee;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Builds a synthetic organization of a given size, depth and fan-out in the same shape DataBootstrap loads: each
+ * employee's directReports are stubs carrying only an employeeId.
+ *
+ * A single management chain runs from the root down to the requested depth, and the remaining employees fill the
+ * tree level by level with up to fanOut reports per manager. When the size does not fit in that many levels the
+ * fan-out is raised until it does. With a fan-out shape the number of reports per manager is skewed instead, the way
+ * a few managers in a real organization have very many reports. Ids are derived from the employee's position, so the same parameters always
+ * produce the same organization.
+ */
+public class SyntheticOrg {
+    private static final String[] DEPARTMENTS = {"Engineering", "Sales", "Finance", "Operations", "Marketing"};
+
+    private final List<Employee> employees;
+    private final int[] levels;
+    private final int chainLength;
+
+    public SyntheticOrg(int size, int depth, int fanOut) {
+        this(size, depth, fanOut, 0, 0);
+    }
+
+    /**
+     * @param fanOutShape 0 gives every manager the same number of reports. Otherwise each manager's share is drawn
+     *                    from a Pareto distribution with this shape (which must be greater than 1) and a mean of
+     *                    fanOut; values closer to 1 leave a few managers with very many reports.
+     * @param seed        seeds the Pareto draws
+     */
+    public SyntheticOrg(int size, int depth, int fanOut, double fanOutShape, long seed) {
+        if (size < 1 || depth < 1 || fanOut < 1) {
+            throw new IllegalArgumentException("Size, depth and fan-out must be positive");
+        }
+        if (depth == 1 && size > 1) {
+            throw new IllegalArgumentException("An organization of " + size + " employees needs more than one level");
+        }
+        if (fanOutShape != 0 && fanOutShape <= 1) {
+            throw new IllegalArgumentException("The fan-out shape must be 0 or greater than 1");
+        }
+
+        Random random = new Random(seed);
+        int reportsPerManager = fanOut;
+        while (fanOutShape == 0 && capacity(reportsPerManager, depth) < size) {
+            reportsPerManager++;
+        }
+        double minimumReports = fanOut * (fanOutShape - 1) / fanOutShape;
+
+        employees = new ArrayList<>(size);
+        levels = new int[size];
+        int[] reportCounts = new int[size];
+        int[] reportLimits = new int[size];
+        for (int i = 0; i < size; i++) {
+            reportLimits[i] = fanOutShape == 0 ? reportsPerManager
+                    : (int) Math.max(1, Math.min(size, Math.round(minimumReports / Math.pow(1 - random.nextDouble(), 1 / fanOutShape))));
+        }
+
+        chainLength = Math.min(size, depth);
+        employees.add(newEmployee(0, 0));
+        for (int i = 1; i < chainLength; i++) {
+            addReport(i - 1, newEmployee(i, i), reportCounts);
+        }
+
+        // Managers waiting for reports, one queue per level so that shallower levels fill first. Once every manager
+        // has its share, any employees left over are spread across the lowest level of managers.
+        List<ArrayDeque<Integer>> managers = new ArrayList<>();
+        List<Integer> lowestManagers = new ArrayList<>();
+        for (int level = 0; level < depth - 1; level++) {
+            managers.add(new ArrayDeque<>());
+        }
+        for (int i = 0; i < employees.size() && i < depth - 1; i++) {
+            managers.get(i).add(i);
+            if (i == depth - 2) {
+                lowestManagers.add(i);
+            }
+        }
+
+        int level = 0;
+        int overflow = 0;
+        for (int i = employees.size(); i < size; i++) {
+            while (level < depth - 1
+                    && (managers.get(level).isEmpty() || reportCounts[managers.get(level).peek()] >= reportLimits[managers.get(level).peek()])) {
+                if (managers.get(level).isEmpty()) {
+                    level++;
+                } else {
+                    managers.get(level).poll();
+                }
+            }
+
+            if (level == depth - 1) {
+                addReport(lowestManagers.get(overflow++ % lowestManagers.size()), newEmployee(i, level), reportCounts);
+                continue;
+            }
+
+            int manager = managers.get(level).peek();
+            addReport(manager, newEmployee(i, level + 1), reportCounts);
+            if (level + 1 < depth - 1) {
+                managers.get(level + 1).add(i);
+                if (level + 1 == depth - 2) {
+                    lowestManagers.add(i);
+                }
+            }
+        }
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public Employee getRoot() {
+        return employees.get(0);
+    }
+
+    /**
+     * The employee on the management chain halfway down the organization.
+     */
+    public Employee getMiddleManager() {
+        return employees.get((chainLength - 1) / 2);
+    }
+
+    public Employee get(int index) {
+        return employees.get(index);
+    }
+
+    public int getLevel(int index) {
+        return levels[index];
+    }
+
+    public int size() {
+        return employees.size();
+    }
+
+    private void addReport(int manager, Employee report, int[] reportCounts) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(report.getEmployeeId());
+
+        Employee parent = employees.get(manager);
+        if (parent.getDirectReports() == null) {
+            parent.setDirectReports(new ArrayList<>());
+        }
+        parent.getDirectReports().add(stub);
+        reportCounts[manager]++;
+        levels[employees.size()] = levels[manager] + 1;
+
+        employees.add(report);
+    }
+
+    private static Employee newEmployee(int index, int level) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId(index));
+        employee.setFirstName("Employee");
+        employee.setLastName(Integer.toString(index));
+        employee.setPosition(level == 0 ? "CEO" : "Level " + level);
+        employee.setDepartment(DEPARTMENTS[index % DEPARTMENTS.length]);
+        return employee;
+    }
+
+    static String employeeId(int index) {
+        return UUID.nameUUIDFromBytes(("employee-" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static long capacity(int fanOut, int depth) {
+        long capacity = 0;
+        long levelSize = 1;
+        for (int level = 0; level < depth && capacity < Integer.MAX_VALUE; level++) {
+            capacity += levelSize;
+            levelSize = Math.min(levelSize * fanOut, Integer.MAX_VALUE);
+        }
+        return capacity;
+    }
+}
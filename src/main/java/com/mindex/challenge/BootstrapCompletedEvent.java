@@ -0,0 +1,21 @@
+package com.mindex.challenge;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by DataBootstrap when a background load of the seed data has finished, so that anything derived from the
+ * employee collection can be rebuilt.
+ */
+public class BootstrapCompletedEvent extends ApplicationEvent {
+
+    private final long employeeCount;
+
+    public BootstrapCompletedEvent(Object source, long employeeCount) {
+        super(source);
+        this.employeeCount = employeeCount;
+    }
+
+    public long getEmployeeCount() {
+        return employeeCount;
+    }
+}
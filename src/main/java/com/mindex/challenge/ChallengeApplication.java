@@ -6,6 +6,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class ChallengeApplication {
 
+	static {
+		// A client that hangs up on the change feed leaves its response held open, and this version of Tomcat recycles
+		// such a request without telling the application. Recycling the facades too makes late writes to it fail,
+		// instead of landing in whichever request reuses the objects next.
+		System.setProperty("org.apache.catalina.connector.RECYCLE_FACADES", "true");
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(ChallengeApplication.class, args);
 	}
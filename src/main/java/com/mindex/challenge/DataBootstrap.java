@@ -1,39 +1,185 @@
 package com.mindex.challenge;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
 import com.mindex.challenge.data.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * Loads the seed employees, and optionally seed compensation entries from challenge.bootstrap.compensation-location,
+ * into the database. Each file is streamed one record at a time and inserted in batches, so memory use does not grow
+ * with the size of the file.
+ *
+ * With challenge.bootstrap.async the load runs in the background once the application is ready; until it finishes
+ * the health endpoint reports this component as OUT_OF_SERVICE with a status of "loading".
+ *
+ * Nothing is loaded if the database already holds employees, as it does when the durable backend restarts.
+ */
 @Component
-public class DataBootstrap {
-    private static final String DATASTORE_LOCATION = "/static/employee_database.json";
+@DependsOn({"employeeIdMigration", "compensationHistoryMigration", "documentVersionMigration"})
+public class DataBootstrap implements HealthIndicator {
+    private static final Logger LOG = LoggerFactory.getLogger(DataBootstrap.class);
+
+    @Value("${challenge.bootstrap.location:classpath:/static/employee_database.json}")
+    private Resource location;
+
+    @Value("${challenge.bootstrap.compensation-location:}")
+    private Resource compensationLocation;
+
+    @Value("${challenge.bootstrap.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${challenge.bootstrap.async:false}")
+    private boolean async;
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private CompensationRepository compensationRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile String status = "pending";
+    private volatile long loadedCount;
+    private volatile long compensationCount;
+    private volatile Exception failure;
+
     @PostConstruct
     public void init() {
-        InputStream inputStream = this.getClass().getResourceAsStream(DATASTORE_LOCATION);
+        if (!async) {
+            load();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!async) {
+            return;
+        }
+
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+                eventPublisher.publishEvent(new BootstrapCompletedEvent(this, loadedCount));
+            } catch (RuntimeException e) {
+                LOG.error("Background load of [{}] failed", location, e);
+            }
+        }, "data-bootstrap");
+        loader.setDaemon(true);
+        loader.start();
+    }
 
-        Employee[] employees = null;
+    @Override
+    public Health health() {
+        Health.Builder health;
+        if (failure != null) {
+            health = Health.down(failure);
+        } else if ("loaded".equals(status)) {
+            health = Health.up();
+        } else {
+            health = Health.outOfService();
+        }
+        return health.withDetail("status", status).withDetail("employees", loadedCount)
+                .withDetail("compensation", compensationCount).build();
+    }
+
+    private void load() {
+        status = "loading";
+        long start = System.currentTimeMillis();
+
+        long existing = employeeRepository.count();
+        if (existing > 0) {
+            loadedCount = existing;
+            status = "loaded";
+            LOG.info("Skipping the seed data, the database already holds [{}] employees", existing);
+            return;
+        }
 
         try {
-            employees = objectMapper.readValue(inputStream, Employee[].class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            read(location, Employee.class, batch -> {
+                employeeRepository.insert(batch);
+                loadedCount += batch.size();
+            });
+            if (compensationLocation != null) {
+                read(compensationLocation, Compensation.class, batch -> {
+                    compensationRepository.insert(batch);
+                    compensationCount += batch.size();
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            status = "failed";
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
         }
 
-        for (Employee employee : employees) {
-            employeeRepository.insert(employee);
+        status = "loaded";
+        LOG.info("Loaded [{}] employees and [{}] compensation entries in [{}] ms",
+                loadedCount, compensationCount, System.currentTimeMillis() - start);
+    }
+
+    private <T> void read(Resource resource, Class<T> type, Consumer<List<T>> insert) throws IOException {
+        long start = System.currentTimeMillis();
+        long insertMillis = 0;
+        long count = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+
+        try (InputStream inputStream = resource.getInputStream();
+             JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of " + type.getSimpleName() + " in " + resource);
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(objectMapper.readValue(parser, type));
+                count++;
+
+                if (batch.size() == batchSize) {
+                    insertMillis += insert(batch, insert);
+                }
+            }
+            insertMillis += insert(batch, insert);
         }
+
+        long totalMillis = System.currentTimeMillis() - start;
+        LOG.info("Loaded [{}] {} records from [{}] in [{}] ms ([{}] ms parsing, [{}] ms inserting)",
+                count, type.getSimpleName(), resource, totalMillis, totalMillis - insertMillis, insertMillis);
+    }
+
+    private <T> long insert(List<T> batch, Consumer<List<T>> insert) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        insert.accept(batch);
+        batch.clear();
+        return System.currentTimeMillis() - start;
     }
 }
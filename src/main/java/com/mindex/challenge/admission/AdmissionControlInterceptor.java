@@ -0,0 +1,139 @@
+package com.mindex.challenge.admission;
+
+import com.mindex.challenge.controller.EmployeeController;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for the EmployeeController routes. Each route ("GET /employee/{id}", say) has its own AimdLimiter,
+ * so a burst of slow reporting structure requests only shrinks their own limit and cannot take every servlet thread
+ * away from cheap reads. A request that finds no slot on its route within the wait gets a 503 with Retry-After.
+ *
+ * Routes that are slow by nature, like the bulk import and the reporting structure export, would otherwise sit at the
+ * minimum limit for good, so "challenge.admission.route-latency-threshold-ms" gives them thresholds of their own, keyed
+ * like "POST /employee/bulk". Every other route uses "challenge.admission.latency-threshold-ms".
+ *
+ * The http.server.admission.limit and http.server.admission.in.flight gauges and the http.server.admission.rejections
+ * counter are tagged with method and uri, like http.server.requests.
+ *
+ * A streamed or deferred response keeps its slot until it completes. The async dispatch that finishes it passes
+ * through preHandle again and is let straight through.
+ */
+@Component
+@Profile("!reactive")
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControlInterceptor.class);
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    @Value("${challenge.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${challenge.admission.initial-limit:4}")
+    private int initialLimit;
+
+    @Value("${challenge.admission.min-limit:1}")
+    private int minLimit;
+
+    @Value("${challenge.admission.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${challenge.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${challenge.admission.latency-threshold-ms:500}")
+    private long latencyThresholdMillis;
+
+    @Value("#{${challenge.admission.route-latency-threshold-ms:{:}}}")
+    private Map<String, Long> routeLatencyThresholdMillis;
+
+    @Value("${challenge.admission.max-wait-ms:100}")
+    private long maxWaitMillis;
+
+    @Value("${challenge.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        if (!enabled || request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)
+                || ((HandlerMethod) handler).getBeanType() != EmployeeController.class) {
+            return true;
+        }
+
+        String method = request.getMethod();
+        String uri = String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        AimdLimiter limiter = limiters.computeIfAbsent(method + " " + uri, route -> limiter(route, method, uri));
+
+        if (!limiter.acquire()) {
+            LOG.debug("Rejected [{} {}] at a limit of [{}] concurrent requests", method, uri, limiter.getLimit());
+            meterRegistry.counter("http.server.admission.rejections", "method", method, "uri", uri).increment();
+
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many concurrent [" + method + " " + uri + "] requests");
+        }
+
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.limiter.release(System.nanoTime() - permit.start);
+        }
+    }
+
+    private AimdLimiter limiter(String route, String method, String uri) {
+        long threshold = routeLatencyThresholdMillis.getOrDefault(route, latencyThresholdMillis);
+        AimdLimiter limiter = new AimdLimiter(initialLimit, minLimit, maxLimit, backoffRatio, threshold, maxWaitMillis,
+                TimeUnit.MILLISECONDS);
+
+        Tags tags = Tags.of("method", method, "uri", uri);
+        Gauge.builder("http.server.admission.limit", limiter, AimdLimiter::getLimit).tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("http.server.admission.in.flight", limiter, AimdLimiter::getInFlight).tags(tags)
+                .register(meterRegistry);
+
+        return limiter;
+    }
+
+    private static class Permit {
+        private final AimdLimiter limiter;
+        private final long start;
+
+        Permit(AimdLimiter limiter, long start) {
+            this.limiter = limiter;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mindex.challenge.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that adapts to latency the way TCP congestion control adapts to loss. Each request that
+ * completes within the latency threshold while at least half the limit is in use raises the limit by 1/limit, so a
+ * whole limit's worth of them raises it by about one. A slower one cuts it by the backoff ratio, but only once per
+ * window: after a cut, the next one waits for a limit's worth of completions, so a burst of slow requests that were
+ * all admitted under the old limit is one signal rather than many. The limit never goes below the minimum or above the
+ * maximum. Requests over the limit wait up to maxWait for a slot before being turned away.
+ */
+public class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long completions;
+    private long lastCut = Long.MIN_VALUE / 2;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThreshold,
+                       long maxWait, TimeUnit unit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    /**
+     * Takes a slot, waiting up to maxWait for one, and returns whether it got one. Every slot taken must be given back
+     * through release.
+     */
+    public boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a slot, adjusting the limit by how long the request held it.
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            completions++;
+            if (latencyNanos > latencyThresholdNanos) {
+                if (completions - lastCut >= (int) limit) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastCut = completions;
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+
+            // More than one waiter may fit if the limit went up
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
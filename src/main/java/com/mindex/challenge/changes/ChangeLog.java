@@ -0,0 +1,246 @@
+package com.mindex.challenge.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only log of successful employee and compensation writes, numbered from 1 without gaps. The newest
+ * "challenge.changes.capacity" events are kept in a ring buffer. With "challenge.changes.spill.directory" set, every
+ * event is also written to segment files there, so a consumer that has fallen out of the ring can still catch up from
+ * disk and numbering carries on across restarts; without it numbering starts over with the process.
+ *
+ * Publishing only stores the event in the ring. Writing to disk and waking subscribers happen afterwards on a single
+ * background thread, so neither adds to the latency of the write being recorded. Subscribers themselves run on a
+ * separate pool of "challenge.changes.delivery-threads" threads, so a slow one holds up neither the spill nor the
+ * subscribers on the other threads. That pool is small and shared, so subscribers that write to a client hand the
+ * write to a thread of their own rather than block on it.
+ */
+@Component
+public class ChangeLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLog.class);
+
+    @Value("${challenge.changes.capacity:10000}")
+    private int capacity;
+
+    @Value("${challenge.changes.spill.directory:}")
+    private String spillDirectory;
+
+    @Value("${challenge.changes.spill.segment-size:100000}")
+    private int segmentSize;
+
+    @Value("${challenge.changes.spill.max-segments:10}")
+    private int maxSegments;
+
+    @Value("${challenge.changes.delivery-threads:4}")
+    private int deliveryThreads;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ChangeEvent[] ring;
+    private long firstInRing;
+    private long lastSequence;
+
+    private ChangeLogSpill spill;
+    private final Queue<ChangeEvent> unspilled = new ConcurrentLinkedQueue<>();
+
+    private final Map<Runnable, Subscription> subscribers = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private ExecutorService drainExecutor;
+    private ExecutorService deliveryExecutor;
+
+    @PostConstruct
+    public void init() {
+        ring = new ChangeEvent[capacity];
+
+        if (!spillDirectory.isEmpty()) {
+            try {
+                spill = new ChangeLogSpill(Paths.get(spillDirectory), segmentSize, maxSegments, objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not recover the change log in " + spillDirectory, e);
+            }
+            lastSequence = spill.getLastSequence();
+        }
+        firstInRing = lastSequence + 1;
+
+        drainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger deliveryThreadCount = new AtomicInteger();
+        deliveryExecutor = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "change-delivery-" + deliveryThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        drainExecutor.shutdown();
+        drainExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        deliveryExecutor.shutdownNow();
+
+        if (spill != null) {
+            spillPending();
+            spill.close();
+        }
+    }
+
+    public void publish(ChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.setSequence(++lastSequence);
+            ring[(int) (lastSequence % capacity)] = event;
+
+            // Queued under the lock so that the spill sees events in sequence order
+            if (spill != null) {
+                unspilled.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if ((spill != null || !subscribers.isEmpty()) && drainScheduled.compareAndSet(false, true)) {
+            drainExecutor.execute(this::drain);
+        }
+    }
+
+    public long getLastSequence() {
+        lock.readLock().lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit events after the given sequence number, oldest first, or null if the log can no longer say
+     * what happened after it: either the next event is neither in the ring nor on disk any more, or the sequence
+     * number is ahead of the log, as it is for a consumer that outlived a restart without spill. A consumer that gets
+     * null has to start over from a full read.
+     */
+    public List<ChangeEvent> read(long since, int limit) {
+        lock.readLock().lock();
+        try {
+            if (since < 0 || since > lastSequence) {
+                return null;
+            }
+
+            if (since + 1 >= Math.max(firstInRing, lastSequence - capacity + 1)) {
+                List<ChangeEvent> events = new ArrayList<>();
+                for (long sequence = since + 1; sequence <= lastSequence && events.size() < limit; sequence++) {
+                    events.add(ring[(int) (sequence % capacity)]);
+                }
+                return events;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (spill == null) {
+            return null;
+        }
+
+        try {
+            return spill.read(since, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the change log in " + spillDirectory, e);
+        }
+    }
+
+    /**
+     * Runs the subscriber on a delivery thread after new events are published, and once straight away so that it can
+     * catch up. Subscribers are not told which events are new; they read on from wherever they got to. A subscriber
+     * never runs on two threads at once: events published while it runs wake it once more when it is done.
+     */
+    public void subscribe(Runnable subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        subscribers.put(subscriber, subscription);
+        subscription.wake();
+    }
+
+    public void unsubscribe(Runnable subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    // Events published while a drain is running schedule another, so none is left unspilled or unannounced
+    private void drain() {
+        drainScheduled.set(false);
+
+        if (spill != null) {
+            try {
+                spillPending();
+            } catch (IOException e) {
+                LOG.error("Could not write to the change log in [{}]", spillDirectory, e);
+            }
+        }
+
+        subscribers.values().forEach(Subscription::wake);
+    }
+
+    private void spillPending() throws IOException {
+        for (ChangeEvent event = unspilled.poll(); event != null; event = unspilled.poll()) {
+            spill.append(event);
+        }
+        spill.flush();
+    }
+
+    // Wakes counted while the subscriber runs send it round again, so the last of them is never lost
+    private class Subscription implements Runnable {
+        private final Runnable subscriber;
+        private final AtomicInteger wakes = new AtomicInteger();
+
+        Subscription(Runnable subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void wake() {
+            if (wakes.getAndIncrement() == 0) {
+                deliveryExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int handled;
+            do {
+                handled = wakes.get();
+                try {
+                    subscriber.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Change log subscriber failed", e);
+                }
+            } while (wakes.addAndGet(-handled) != 0);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.mindex.challenge.changes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The on-disk part of the change log: NDJSON segment files, each named after the first sequence number in it. A new
+ * segment is started every segment-size events and on every restart, so a line torn by a crash is never appended to,
+ * and only the newest max-segments are kept. Appends come from a single thread; reads may come from any.
+ */
+class ChangeLogSpill implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogSpill.class);
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("changes-(\\d+)\\.ndjson");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ObjectMapper objectMapper;
+
+    private long lastSequence;
+    private BufferedWriter segment;
+    private int segmentEvents;
+
+    ChangeLogSpill(Path directory, int segmentSize, int maxSegments, ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.objectMapper = objectMapper;
+
+        Files.createDirectories(directory);
+        for (Path file : segments().descendingMap().values()) {
+            forEachEvent(file, event -> {
+                lastSequence = event.getSequence();
+                return true;
+            });
+            if (lastSequence > 0) {
+                break;
+            }
+        }
+        LOG.info("Recovered change log up to sequence [{}] from [{}]", lastSequence, directory);
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    void append(ChangeEvent event) throws IOException {
+        if (segment == null || segmentEvents >= segmentSize) {
+            startSegment(event.getSequence());
+        }
+
+        segment.write(objectMapper.writeValueAsString(event));
+        segment.write('\n');
+        segmentEvents++;
+        lastSequence = event.getSequence();
+    }
+
+    void flush() throws IOException {
+        if (segment != null) {
+            segment.flush();
+        }
+    }
+
+    /**
+     * Returns up to limit events after the given sequence number, or null if the segments that held the next one have
+     * already been deleted.
+     */
+    List<ChangeEvent> read(long since, int limit) throws IOException {
+        TreeMap<Long, Path> segments = segments();
+        Map.Entry<Long, Path> first = segments.floorEntry(since + 1);
+
+        if (first == null) {
+            return segments.isEmpty() || since + 1 < segments.firstKey() ? null : new ArrayList<>();
+        }
+
+        List<ChangeEvent> events = new ArrayList<>();
+        try {
+            for (Path file : segments.tailMap(first.getKey()).values()) {
+                forEachEvent(file, event -> {
+                    if (event.getSequence() > since) {
+                        events.add(event);
+                    }
+                    return events.size() < limit;
+                });
+                if (events.size() == limit) {
+                    break;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted by a rollover part-way through the read
+            return null;
+        }
+        return events;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        close();
+        segment = Files.newBufferedWriter(directory.resolve("changes-" + firstSequence + ".ndjson"),
+                StandardCharsets.UTF_8);
+        segmentEvents = 0;
+
+        TreeMap<Long, Path> segments = segments();
+        while (segments.size() > maxSegments) {
+            Files.delete(segments.pollFirstEntry().getValue());
+        }
+    }
+
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    // Stops when the visitor returns false. A line cut short by a crash, or still being written, ends the segment.
+    private void forEachEvent(Path file, Predicate<ChangeEvent> visitor) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                ChangeEvent event;
+                try {
+                    event = objectMapper.readValue(line, ChangeEvent.class);
+                } catch (JsonProcessingException e) {
+                    return;
+                }
+
+                if (!visitor.test(event)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.admission.AdmissionControlInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts admission control in front of the servlet stack's handlers. The interceptor itself picks out the
+ * EmployeeController routes and is switched off with challenge.admission.enabled=false.
+ */
+@Configuration
+@Profile("!reactive")
+public class AdmissionControlConfig implements WebMvcConfigurer {
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionControlInterceptor);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mindex.challenge.config;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on the read-through caches declared on the repositories. The cache provider, size bound and TTL come from
+ * the spring.cache properties; setting spring.cache.type=none switches caching off.
+ */
+@EnableCaching
+@Configuration
+public class CacheConfig {
+    public static final String EMPLOYEES = "employees";
+    public static final String COMPENSATIONS = "compensations";
+
+    // Not named cacheResolver, which would stop Spring Boot from creating the CacheManager it wraps
+    public static final String ENTITY_CACHE_RESOLVER = "entityCacheResolver";
+
+    @Bean(ENTITY_CACHE_RESOLVER)
+    public EntityCacheResolver entityCacheResolver(CacheManager cacheManager) {
+        return new EntityCacheResolver(cacheManager);
+    }
+}
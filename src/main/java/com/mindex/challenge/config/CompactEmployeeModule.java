@@ -0,0 +1,73 @@
+package com.mindex.challenge.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mindex.challenge.data.Employee;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Jackson module for the compact employee representation, in which a direct report that is only a stub is written as
+ * its bare employeeId rather than as an object: "directReports": ["id1", "id2"]. Reports that have been expanded are
+ * still written in full, so nothing is lost on expanded reads. Either form is accepted when reading.
+ */
+public class CompactEmployeeModule extends SimpleModule {
+
+    public CompactEmployeeModule() {
+        super("CompactEmployeeModule");
+        setMixInAnnotation(Employee.class, CompactEmployeeMixIn.class);
+    }
+
+    abstract static class CompactEmployeeMixIn {
+        @JsonSerialize(contentUsing = DirectReportSerializer.class)
+        @JsonDeserialize(contentUsing = DirectReportDeserializer.class)
+        private List<Employee> directReports;
+    }
+
+    static class DirectReportSerializer extends StdSerializer<Employee> {
+        DirectReportSerializer() {
+            super(Employee.class);
+        }
+
+        @Override
+        public void serialize(Employee report, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (isStub(report)) {
+                generator.writeString(report.getEmployeeId());
+            } else {
+                provider.findValueSerializer(Employee.class).serialize(report, generator, provider);
+            }
+        }
+
+        private static boolean isStub(Employee report) {
+            return report.getFirstName() == null && report.getLastName() == null && report.getPosition() == null
+                    && report.getDepartment() == null && report.getDirectReports() == null
+                    && report.getVersion() == null;
+        }
+    }
+
+    static class DirectReportDeserializer extends StdDeserializer<Employee> {
+        DirectReportDeserializer() {
+            super(Employee.class);
+        }
+
+        @Override
+        public Employee deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                return context.readValue(parser, Employee.class);
+            }
+
+            Employee report = new Employee();
+            report.setEmployeeId(parser.getText());
+            return report;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.data.Compensation;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Compensation used to be stored one document per employee, keyed by the employeeId. Those documents become the first
+ * entry of each employee's history: they keep their id and gain the employee field the history is indexed on.
+ */
+@Component
+public class CompensationHistoryMigration {
+    private static final Logger LOG = LoggerFactory.getLogger(CompensationHistoryMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Compensation.class));
+        int migrated = 0;
+
+        for (Document legacy : collection.find(Filters.exists("employee", false))) {
+            collection.updateOne(Filters.eq("_id", legacy.get("_id")), Updates.set("employee", legacy.get("_id")));
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            LOG.info("Migrated [{}] compensation documents into compensation history", migrated);
+        }
+    }
+}
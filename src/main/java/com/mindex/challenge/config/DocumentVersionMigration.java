@@ -0,0 +1,44 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+
+/**
+ * Employees and compensation entries written before they carried a version have none, and Spring Data takes a
+ * document without a version for a new one, so saving it would insert a duplicate. This starts them at version 0.
+ */
+@Component
+@DependsOn({"employeeIdMigration", "compensationHistoryMigration"})
+public class DocumentVersionMigration {
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentVersionMigration.class);
+
+    private static final String VERSION_FIELD = "version";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        for (Class<?> type : Arrays.asList(Employee.class, Compensation.class)) {
+            String collectionName = mongoTemplate.getCollectionName(type);
+            UpdateResult result = mongoTemplate.getCollection(collectionName)
+                    .updateMany(Filters.exists(VERSION_FIELD, false), Updates.set(VERSION_FIELD, 0L));
+
+            if (result.getModifiedCount() > 0) {
+                LOG.info("Started [{}] unversioned {} documents at version 0", result.getModifiedCount(), collectionName);
+            }
+        }
+    }
+}
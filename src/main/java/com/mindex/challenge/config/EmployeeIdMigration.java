@@ -0,0 +1,75 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Employees used to be stored under a generated ObjectId with employeeId as an ordinary, unindexed field. Now that
+ * employeeId is the document id, this rewrites any documents left in the old shape before anything reads them,
+ * including the employeeId keys of their embedded directReports.
+ *
+ * The old update path could leave several documents for one employee; they are migrated oldest first, so the most
+ * recently written one wins.
+ */
+@Component
+public class EmployeeIdMigration {
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeIdMigration.class);
+
+    private static final String LEGACY_ID_FIELD = "employeeId";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+        int migrated = 0;
+
+        for (Document legacy : collection.find(Filters.exists(LEGACY_ID_FIELD)).sort(Sorts.ascending("_id"))) {
+            Object legacyId = legacy.get("_id");
+            Document document = rekey(legacy);
+
+            collection.replaceOne(Filters.eq("_id", document.get("_id")), document, new ReplaceOptions().upsert(true));
+            collection.deleteOne(Filters.eq("_id", legacyId));
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            LOG.info("Migrated [{}] employee documents to use employeeId as their id", migrated);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Document rekey(Document legacy) {
+        Document document = new Document("_id", legacy.get(LEGACY_ID_FIELD));
+        for (String key : legacy.keySet()) {
+            if (!"_id".equals(key) && !LEGACY_ID_FIELD.equals(key)) {
+                document.put(key, legacy.get(key));
+            }
+        }
+
+        Object directReports = document.get("directReports");
+        if (directReports instanceof List) {
+            for (Object directReport : (List<Object>) directReports) {
+                if (directReport instanceof Document && ((Document) directReport).containsKey(LEGACY_ID_FIELD)) {
+                    Document report = (Document) directReport;
+                    report.put("_id", report.remove(LEGACY_ID_FIELD));
+                }
+            }
+        }
+
+        return document;
+    }
+}
@@ -0,0 +1,144 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.AbstractCacheResolver;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the repository caches wrapped in two ways:
+ *
+ * - Entities are copied on the way in and on the way out, so a caller that changes the employee or compensation it
+ *   was handed cannot change what the next caller reads.
+ * - An evict with a collection as its key evicts each element, so a batch write can name the keys it wrote rather
+ *   than clearing the cache.
+ */
+public class EntityCacheResolver extends AbstractCacheResolver {
+
+    public EntityCacheResolver(CacheManager cacheManager) {
+        super(cacheManager);
+    }
+
+    @Override
+    protected Collection<String> getCacheNames(CacheOperationInvocationContext<?> context) {
+        return context.getOperation().getCacheNames();
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return super.resolveCaches(context).stream().map(EntityCache::new).collect(Collectors.toList());
+    }
+
+    static Object copy(Object value) {
+        if (value instanceof Employee) {
+            return copy((Employee) value);
+        }
+        if (value instanceof Compensation) {
+            return copy((Compensation) value);
+        }
+        return value;
+    }
+
+    private static Employee copy(Employee employee) {
+        Employee copy = new Employee();
+        copy.setEmployeeId(employee.getEmployeeId());
+        copy.setFirstName(employee.getFirstName());
+        copy.setLastName(employee.getLastName());
+        copy.setPosition(employee.getPosition());
+        copy.setDepartment(employee.getDepartment());
+        copy.setVersion(employee.getVersion());
+
+        if (employee.getDirectReports() != null) {
+            List<Employee> directReports = new ArrayList<>(employee.getDirectReports().size());
+            for (Employee directReport : employee.getDirectReports()) {
+                directReports.add(directReport == null ? null : copy(directReport));
+            }
+            copy.setDirectReports(directReports);
+        }
+
+        return copy;
+    }
+
+    private static Compensation copy(Compensation compensation) {
+        Compensation copy = new Compensation();
+        copy.setId(compensation.getId());
+        copy.setEmployee(compensation.getEmployee());
+        copy.setSalary(compensation.getSalary());
+        copy.setEffectiveDate(compensation.getEffectiveDate() == null
+                ? null : new Date(compensation.getEffectiveDate().getTime()));
+        copy.setVersion(compensation.getVersion());
+        return copy;
+    }
+
+    private static class EntityCache implements Cache {
+        private final Cache delegate;
+
+        EntityCache(Cache delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper value = delegate.get(key);
+            return value == null ? null : new SimpleValueWrapper(copy(value.get()));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Class<T> type) {
+            return (T) copy(delegate.get(key, type));
+        }
+
+        // The loaded value goes into the cache as it is; the caller gets a copy of it like every later caller
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return (T) copy(delegate.get(key, valueLoader));
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegate.put(key, copy(value));
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = delegate.putIfAbsent(key, copy(value));
+            return existing == null ? null : new SimpleValueWrapper(copy(existing.get()));
+        }
+
+        @Override
+        public void evict(Object key) {
+            if (key instanceof Collection) {
+                ((Collection<?>) key).forEach(delegate::evict);
+            } else {
+                delegate.evict(key);
+            }
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+}
@@ -1,20 +1,43 @@
 package com.mindex.challenge.config;
 
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.dao.InstrumentedMongoRepositoryFactoryBean;
+import com.mindex.challenge.dao.ReactiveEmployeeRepository;
+import com.mindex.challenge.store.DurableMemoryBackend;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoBackend;
 import de.bwaldvogel.mongo.MongoServer;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDbFactory;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
 
-@EnableMongoRepositories(basePackageClasses = EmployeeRepository.class)
+import java.nio.file.Paths;
+
+@EnableMongoRepositories(basePackageClasses = EmployeeRepository.class,
+        repositoryFactoryBeanClass = InstrumentedMongoRepositoryFactoryBean.class)
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveEmployeeRepository.class)
 @Configuration
 public class MongoConfig{
+    @Value("${challenge.mongo.backend:memory}")
+    private String backend;
+
+    @Value("${challenge.mongo.durable.directory:data}")
+    private String durableDirectory;
+
+    @Value("${challenge.mongo.durable.snapshot-interval-seconds:300}")
+    private long snapshotIntervalSeconds;
+
+    @Value("${challenge.mongo.durable.fsync:false}")
+    private boolean fsync;
+
     @Bean
     public MongoTemplate mongoTemplate(MongoClient mongoClient) {
         return new MongoTemplate(mongoDbFactory(mongoClient));
@@ -27,15 +50,38 @@ public class MongoConfig{
 
     @Bean(destroyMethod="shutdown")
     public MongoServer mongoServer() {
-        MongoServer mongoServer = new MongoServer(new MemoryBackend());
+        MongoServer mongoServer = new MongoServer(mongoBackend());
         mongoServer.bind();
         return mongoServer;
     }
 
+    // MongoServer.shutdown() closes the backend, which for the durable backend writes a final snapshot
+    private MongoBackend mongoBackend() {
+        switch (backend) {
+            case "memory":
+                return new MemoryBackend();
+            case "durable":
+                return new DurableMemoryBackend(Paths.get(durableDirectory), snapshotIntervalSeconds, fsync);
+            default:
+                throw new IllegalStateException("Unknown mongo backend [" + backend + "], expected memory or durable");
+        }
+    }
+
     @Bean(destroyMethod="close")
     public MongoClient mongoClient() {
         return MongoClients.create("mongodb:/" + mongoServer().getLocalAddress());
     }
+
+    // The reactive repositories, used by the "reactive" profile, talk to the same embedded server
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient) {
+        return new ReactiveMongoTemplate(reactiveMongoClient, "test");
+    }
+
+    @Bean(destroyMethod="close")
+    public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient() {
+        return com.mongodb.reactivestreams.client.MongoClients.create("mongodb:/" + mongoServer().getLocalAddress());
+    }
 }
 
 
@@ -0,0 +1,30 @@
+package com.mindex.challenge.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * Tomcat is on the classpath for the servlet stack and would otherwise also serve the reactive one; the reactive
+ * profile runs on Netty's event loops instead.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // JSON and Smile are both negotiated from Accept, as on the servlet stack (see WireFormatConfig)
+    @Bean
+    public WebFilter varyByAcceptFilter() {
+        return (exchange, chain) -> {
+            exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            return chain.filter(exchange);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.controller.RepositoryCallsFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.DispatcherType;
+
+/**
+ * Lets the RepositoryCallsFilter follow a request through its async dispatches, which filters are left out of by
+ * default, and onto the threads that run its Callable and StreamingResponseBody results.
+ */
+@Configuration
+@Profile("!reactive")
+public class RepositoryCallsConfig implements WebMvcConfigurer {
+    @Autowired
+    private RepositoryCallsFilter repositoryCallsFilter;
+
+    @Bean
+    public FilterRegistrationBean<RepositoryCallsFilter> repositoryCallsFilterRegistration() {
+        FilterRegistrationBean<RepositoryCallsFilter> registration =
+                new FilterRegistrationBean<>(repositoryCallsFilter);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(repositoryCallsFilter);
+    }
+}
@@ -0,0 +1,150 @@
+package com.mindex.challenge.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wire formats for the servlet stack besides plain JSON, chosen by the Accept and Content-Type headers: Smile
+ * (application/x-jackson-smile), CBOR (application/cbor) and compact JSON (application/vnd.mindex.compact+json, see
+ * CompactEmployeeModule). The Smile and CBOR converters take the place of the ones Spring MVC would register itself,
+ * so that they are built with the same Jackson settings as the JSON one. Plain JSON stays the default.
+ *
+ * Employees are written with every field, null or not, except in responses wrapped by withoutNulls. Those are the
+ * projected and expanded reads, where a null only means the field was not asked for or the report is a stub.
+ *
+ * Every response says it varies by Accept, so that a cache holding one format never hands it to a client that asked
+ * for another. The ETags are per format as well (see ETags).
+ */
+@Configuration
+@Profile("!reactive")
+public class WireFormatConfig implements WebMvcConfigurer {
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String COMPACT_JSON_VALUE = "application/vnd.mindex.compact+json";
+    public static final String EMPLOYEE_FILTER = "employee";
+
+    private static final SimpleFilterProvider WITHOUT_NULLS = new SimpleFilterProvider()
+            .addFilter(EMPLOYEE_FILTER, new NonNullFilter());
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Wraps a response so that the employees in it are written without their null fields.
+     */
+    public static MappingJacksonValue withoutNulls(Object value) {
+        MappingJacksonValue wrapped = new MappingJacksonValue(value);
+        wrapped.setFilters(WITHOUT_NULLS);
+        return wrapped;
+    }
+
+    // Names the employee filter on every mapper the converters use; without a filter supplied it writes every field
+    @Bean
+    public static Jackson2ObjectMapperBuilderCustomizer employeeFilterCustomizer() {
+        return builder -> builder.mixIn(Employee.class, EmployeeFilterMixIn.class)
+                .filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    @Bean
+    public static OncePerRequestFilter varyByAcceptFilter() {
+        return new VaryByAcceptFilter();
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // Goes ahead of the JSON converter, which would otherwise claim the compact type through application/*+json
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        int json = 0;
+        while (json < converters.size() && !(converters.get(json) instanceof MappingJackson2HttpMessageConverter)) {
+            json++;
+        }
+        converters.add(json, new CompactJsonHttpMessageConverter(objectMapper.copy()
+                .registerModule(new CompactEmployeeModule())
+                .addMixIn(Employee.class, CompactEmployeeFilterMixIn.class)));
+    }
+
+    @JsonFilter(EMPLOYEE_FILTER)
+    abstract static class EmployeeFilterMixIn {
+    }
+
+    // An Employee takes one mix-in per mapper, so the compact one carries the module's annotations and the filter
+    @JsonFilter(EMPLOYEE_FILTER)
+    abstract static class CompactEmployeeFilterMixIn extends CompactEmployeeModule.CompactEmployeeMixIn {
+    }
+
+    private static class NonNullFilter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider,
+                                     PropertyWriter writer) throws Exception {
+            if (!(writer instanceof BeanPropertyWriter) || ((BeanPropertyWriter) writer).get(pojo) != null) {
+                writer.serializeAsField(pojo, generator, provider);
+            }
+        }
+    }
+
+    private static class VaryByAcceptFilter extends OncePerRequestFilter {
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Only ever writes when compact JSON was asked for by name. Leaving it out of the producible types means a client
+     * that accepts anything still gets plain JSON.
+     */
+    private static class CompactJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+        CompactJsonHttpMessageConverter(ObjectMapper objectMapper) {
+            super(objectMapper);
+            setSupportedMediaTypes(Collections.singletonList(MediaType.parseMediaType(COMPACT_JSON_VALUE)));
+        }
+
+        @Override
+        protected boolean canWrite(@Nullable MediaType mediaType) {
+            return mediaType != null && super.canWrite(mediaType);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.changes.ChangeLog;
+import com.mindex.challenge.config.WireFormatConfig;
+import com.mindex.challenge.data.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The change feed: every employee and compensation write after a given sequence number, either as a stream of
+ * server-sent events or, for plain JSON clients, by long polling. Consumers keep the last sequence number they applied
+ * and pass it back as since (or, for SSE, as the Last-Event-ID the browser sends on reconnecting). A 410 means the log
+ * no longer reaches back that far and the consumer has to start over from a full read.
+ *
+ * Writing to a stream blocks while its client is not reading, so streams are written on send threads of their own
+ * rather than on the change log's delivery threads, which are shared by every subscriber.
+ */
+@RestController
+@Profile("!reactive")
+public class ChangeController {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeController.class);
+
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Value("${challenge.changes.sse-timeout-seconds:600}")
+    private long sseTimeoutSeconds;
+
+    @Value("${challenge.changes.sse-max-lag:1000}")
+    private long sseMaxLag;
+
+    @Value("${challenge.changes.sse-write-timeout-seconds:10}")
+    private long sseWriteTimeoutSeconds;
+
+    private ExecutorService sendExecutor;
+    private ScheduledExecutorService writeTimeouts;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger sendThreadCount = new AtomicInteger();
+        sendExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-send-" + sendThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writeTimeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-send-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        writeTimeouts.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Sends the events after since, then each new one as it is published, until the connection times out. Each event
+     * carries its sequence number as its id. A stream that falls out of the log ends with an event named "reset", and so
+     * does one that, having caught up, falls more than "challenge.changes.sse-max-lag" events behind again. A stream
+     * whose client has not taken an event within "challenge.changes.sse-write-timeout-seconds" is dropped.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(defaultValue = "0") long since,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId == null ? since : lastEventId;
+        LOG.debug("Received change stream request from sequence [{}]", from);
+
+        checkAvailable(from);
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(sseTimeoutSeconds));
+        ChangeStream stream = new ChangeStream(emitter, from);
+        emitter.onCompletion(() -> changeLog.unsubscribe(stream));
+        emitter.onTimeout(() -> changeLog.unsubscribe(stream));
+        emitter.onError(e -> changeLog.unsubscribe(stream));
+        changeLog.subscribe(stream);
+
+        return emitter;
+    }
+
+    /**
+     * Answers at once with up to limit events after since if there are any, and otherwise waits up to wait seconds for
+     * the next one before answering with an empty list.
+     */
+    @GetMapping(value = "/changes",
+            produces = {MediaType.APPLICATION_JSON_VALUE, WireFormatConfig.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public DeferredResult<List<ChangeEvent>> poll(@RequestParam(defaultValue = "0") long since,
+                                                  @RequestParam(defaultValue = "1000") int limit,
+                                                  @RequestParam(defaultValue = "30") long wait) {
+        LOG.debug("Received change poll request from sequence [{}]", since);
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        checkAvailable(since);
+
+        DeferredResult<List<ChangeEvent>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(Math.max(wait, 1)), Collections.emptyList());
+        Runnable poll = () -> {
+            List<ChangeEvent> events = changeLog.read(since, limit);
+            if (events == null) {
+                result.setErrorResult(gone(since));
+            } else if (!events.isEmpty() || wait <= 0) {
+                result.setResult(events);
+            }
+        };
+        result.onCompletion(() -> changeLog.unsubscribe(poll));
+        changeLog.subscribe(poll);
+
+        return result;
+    }
+
+    private void checkAvailable(long since) {
+        if (changeLog.read(since, 0) == null) {
+            throw gone(since);
+        }
+    }
+
+    private static ResponseStatusException gone(long since) {
+        return new ResponseStatusException(HttpStatus.GONE, "Changes after sequence " + since + " are no longer kept");
+    }
+
+    /**
+     * Runs on a delivery thread, which only hands the stream to a send thread, so a client that stops reading ties up
+     * no thread but its own. That thread is held until Tomcat gives up on the socket, but the stream is dropped once a
+     * write has been blocked for the write timeout: it is never woken again, and no thread is taken for it again.
+     */
+    private class ChangeStream implements Runnable {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean done;
+
+        // Only touched on the send thread, and never by two of them at once
+        private long sent;
+        private boolean caughtUp;
+
+        ChangeStream(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.sent = since;
+        }
+
+        @Override
+        public void run() {
+            if (!done && sending.compareAndSet(false, true)) {
+                sendExecutor.execute(this::sendPending);
+            }
+        }
+
+        // Events published after the last read but before sending is cleared found it set, so they are picked up here
+        private void sendPending() {
+            do {
+                send();
+                sending.set(false);
+            } while (!done && changeLog.getLastSequence() > sent && sending.compareAndSet(false, true));
+        }
+
+        private void send() {
+            try {
+                List<ChangeEvent> events = readNext();
+                while (!done && events != null && !events.isEmpty()) {
+                    for (ChangeEvent event : events) {
+                        send(SseEmitter.event()
+                                .id(Long.toString(event.getSequence()))
+                                .data(event, MediaType.APPLICATION_JSON));
+                        sent = event.getSequence();
+                    }
+                    events = readNext();
+                }
+
+                if (done) {
+                    emitter.complete();
+                } else if (events != null) {
+                    caughtUp = true;
+                } else {
+                    send(SseEmitter.event().name("reset").data(sent));
+                    finish();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away, or the emitter has already completed
+                finish();
+                try {
+                    emitter.completeWithError(e);
+                } catch (IllegalStateException ended) {
+                    // Tomcat has already recycled the request, so there is nothing left to complete
+                }
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            ScheduledFuture<?> timeout = writeTimeouts.schedule(() -> {
+                LOG.debug("Dropping a change stream after [{}] seconds without a write", sseWriteTimeoutSeconds);
+                finish();
+            }, sseWriteTimeoutSeconds, TimeUnit.SECONDS);
+            try {
+                emitter.send(event);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        // Null once the stream has fallen out of the log, or too far behind a log it had kept up with
+        private List<ChangeEvent> readNext() {
+            if (caughtUp && changeLog.getLastSequence() - sent > sseMaxLag) {
+                LOG.debug("Resetting a change stream [{}] events behind", changeLog.getLastSequence() - sent);
+                return null;
+            }
+            return changeLog.read(sent, MAX_PAGE_SIZE);
+        }
+
+        private void finish() {
+            done = true;
+            changeLog.unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.config.WireFormatConfig;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Entity tags for the employee endpoints. An employee's tag is its document version and a reporting structure's is
+ * the subtree version from the OrgGraphIndex, so both can be checked without building the response.
+ *
+ * A response body can be written as JSON, Smile, CBOR or compact JSON, and each of those is a different
+ * representation with its own tag: "5" for JSON, "5-smile", "5-cbor" and "5-compact" for the rest. The format is
+ * worked out from the Accept header the way Spring picks it, before the body is built.
+ */
+final class ETags {
+    private static final MediaType ANY_JSON = MediaType.parseMediaType("application/*+json");
+    private static final MediaType SMILE = MediaType.parseMediaType(WireFormatConfig.SMILE_VALUE);
+    private static final MediaType COMPACT_JSON = MediaType.parseMediaType(WireFormatConfig.COMPACT_JSON_VALUE);
+
+    // The types each stack's converters or encoders can write an entity as, in the order they are tried
+    private static final List<MediaType> SERVLET_FORMATS = Arrays.asList(
+            MediaType.APPLICATION_JSON, ANY_JSON, SMILE, MediaType.APPLICATION_CBOR);
+    private static final List<MediaType> REACTIVE_FORMATS = Arrays.asList(MediaType.APPLICATION_JSON, ANY_JSON, SMILE);
+
+    private ETags() {
+    }
+
+    // For responses without a body, which are the same whatever the format
+    static String of(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(Object version, WebRequest request) {
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        try {
+            List<MediaType> accepted = accept == null
+                    ? Collections.emptyList() : MediaType.parseMediaTypes(Arrays.asList(accept));
+            return of(version, negotiate(accepted, SERVLET_FORMATS));
+        } catch (InvalidMediaTypeException e) {
+            // Spring MVC will turn the request away with a 406 before the tag is sent
+            return of(version);
+        }
+    }
+
+    static String of(Object version, ServerWebExchange exchange) {
+        return of(version, negotiate(exchange.getRequest().getHeaders().getAccept(), REACTIVE_FORMATS));
+    }
+
+    private static String of(Object version, MediaType format) {
+        if (format.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            return of(version);
+        }
+
+        String variant;
+        if (format.isCompatibleWith(SMILE)) {
+            variant = "smile";
+        } else if (format.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+            variant = "cbor";
+        } else if (format.isCompatibleWith(COMPACT_JSON)) {
+            variant = "compact";
+        } else {
+            variant = format.getSubtype();
+        }
+        return of(version + "-" + variant);
+    }
+
+    /**
+     * Pairs each accepted type with each format it is compatible with, keeping the more specific of the two, and takes
+     * the first concrete one by specificity and then quality, as Spring MVC and WebFlux both do.
+     */
+    private static MediaType negotiate(List<MediaType> accepted, List<MediaType> formats) {
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType acceptedType : accepted.isEmpty() ? Collections.singletonList(MediaType.ALL) : accepted) {
+            for (MediaType format : formats) {
+                if (acceptedType.isCompatibleWith(format)) {
+                    MediaType formatWithQuality = format.copyQualityValue(acceptedType);
+                    candidates.add(MediaType.SPECIFICITY_COMPARATOR.compare(acceptedType, formatWithQuality) <= 0
+                            ? acceptedType : formatWithQuality);
+                }
+            }
+        }
+        MediaType.sortBySpecificityAndQuality(candidates);
+
+        for (MediaType candidate : candidates) {
+            if (candidate.isConcrete()) {
+                return candidate;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Returns the version an If-Match header asks for, or null for "*", which matches any current version. The tag of
+     * any format names the same version. A tag that is not one of ours, weak tags included, can never match.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        String tag = ifMatch.trim();
+        if ("*".equals(tag)) {
+            return null;
+        }
+
+        tag = tag.replace("\"", "");
+        int variant = tag.indexOf('-');
+        if (variant >= 0) {
+            tag = tag.substring(0, variant);
+        }
+
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match [" + ifMatch
+                    + "] does not name a version");
+        }
+    }
+}
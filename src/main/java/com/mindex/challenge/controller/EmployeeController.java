@@ -1,50 +1,308 @@
 package com.mindex.challenge.controller;
 
+import com.mindex.challenge.config.WireFormatConfig;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeExpansion;
+import com.mindex.challenge.data.EmployeeFacets;
+import com.mindex.challenge.data.EmployeeSearch;
+import com.mindex.challenge.data.EmployeeSearchResult;
+import com.mindex.challenge.data.ManagementChain;
+import com.mindex.challenge.data.MultiGetRequest;
+import com.mindex.challenge.data.MultiGetResult;
 import com.mindex.challenge.data.ReportingStructure;
 import com.mindex.challenge.service.EmployeeService;
+import com.mindex.challenge.service.impl.EmployeeBulkImporter;
+import com.mindex.challenge.service.impl.ReportingStructureExporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
+@Profile("!reactive")
 public class EmployeeController {
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeController.class);
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String MERGE_PATCH_VALUE = "application/merge-patch+json";
+    public static final String EXPANSION_TRUNCATED_HEADER = "X-Expansion-Truncated";
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private EmployeeBulkImporter employeeBulkImporter;
+
+    @Autowired
+    private ReportingStructureExporter reportingStructureExporter;
+
     @PostMapping("/employee")
     public Employee create(@RequestBody Employee employee) {
         LOG.debug("Received employee create request for [{}]", employee);
 
-        return employeeService.create(employee);
+        try {
+            return employeeService.create(employee);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping(value = "/employee/bulk", consumes = NDJSON_VALUE, produces = NDJSON_VALUE)
+    public StreamingResponseBody bulkCreateNdjson(HttpServletRequest request) {
+        LOG.debug("Received NDJSON bulk employee create request");
+
+        return output -> employeeBulkImporter.importNdjson(request.getInputStream(), output);
     }
 
+    @PostMapping(value = "/employee/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON_VALUE)
+    public StreamingResponseBody bulkCreateJsonArray(HttpServletRequest request) {
+        LOG.debug("Received JSON array bulk employee create request");
+
+        return output -> employeeBulkImporter.importJsonArray(request.getInputStream(), output);
+    }
+
+    /**
+     * Reads the whole employee or, with fields, just the named ones. expand=directReports replaces the report stubs
+     * with the reports themselves, depth levels down, until the node cap is reached; the X-Expansion-Truncated header
+     * says whether it was. Only whole-employee reads carry an ETag, and only projected and expanded reads leave out
+     * null fields.
+     */
     @GetMapping("/employee/{id}")
-    public Employee read(@PathVariable String id) {
+    public ResponseEntity<?> read(@PathVariable String id,
+                                         @RequestParam(required = false) Set<String> fields,
+                                         @RequestParam(required = false) String expand,
+                                         @RequestParam(defaultValue = "1") int depth,
+                                         WebRequest request) {
         LOG.debug("Received employee create request for id [{}]", id);
 
-        return employeeService.read(id);
+        // A null return after checkNotModified tells Spring MVC that the 304 has already been written
+        if (fields == null && expand == null) {
+            Employee employee = employeeService.read(id);
+            return request.checkNotModified(ETags.of(employee.getVersion(), request)) ? null : ResponseEntity.ok(employee);
+        }
+
+        if (expand != null && !"directReports".equals(expand)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot expand [" + expand + "]");
+        }
+
+        try {
+            EmployeeExpansion expansion = employeeService.read(id, fields, expand == null ? 0 : depth);
+            return ResponseEntity.ok()
+                    .header(EXPANSION_TRUNCATED_HEADER, String.valueOf(expansion.isTruncated()))
+                    .body(WireFormatConfig.withoutNulls(expansion.getEmployee()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
+    @GetMapping("/employee")
+    public MappingJacksonValue readAll(@RequestParam List<String> ids,
+                                       @RequestParam(required = false) Set<String> fields) {
+        LOG.debug("Received employee multi-get request for ids [{}] and fields [{}]", ids, fields);
+
+        return readFields(ids, fields);
+    }
+
+    @PostMapping("/employee/_mget")
+    public MappingJacksonValue readAll(@RequestBody MultiGetRequest request) {
+        LOG.debug("Received employee multi-get request for ids [{}] and fields [{}]", request.getIds(), request.getFields());
+
+        return readFields(request.getIds(), request.getFields());
+    }
+
+    private MappingJacksonValue readFields(List<String> ids, Set<String> fields) {
+        try {
+            MultiGetResult<Employee> result = employeeService.readAll(ids, fields);
+            return fields == null ? new MappingJacksonValue(result) : WireFormatConfig.withoutNulls(result);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Filters and paging come from the query string: department, position, firstName, lastName, cursor, limit, fields.
+     * A cursor from before the search index was last rebuilt is a 410, and the search has to start over.
+     */
+    @GetMapping("/employee/search")
+    public MappingJacksonValue search(EmployeeSearch search) {
+        LOG.debug("Received employee search request");
+
+        try {
+            EmployeeSearchResult result = employeeService.search(search);
+            return search.getFields() == null ? new MappingJacksonValue(result) : WireFormatConfig.withoutNulls(result);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (ConcurrentModificationException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/employee/search/facets")
+    public EmployeeFacets getFacets(EmployeeSearch search) {
+        LOG.debug("Received employee facets request");
+
+        return employeeService.getFacets(search);
+    }
+
+    /**
+     * Updates the employee if it is still at the version named by If-Match or, without one, by the version in the
+     * body. A failed If-Match is a 412; a stale version in the body is a 409.
+     */
     @PutMapping("/employee/{id}")
-    public Employee update(@PathVariable String id, @RequestBody Employee employee) {
+    public ResponseEntity<Employee> update(@PathVariable String id, @RequestBody Employee employee,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           WebRequest request) {
         LOG.debug("Received employee create request for id [{}] and employee [{}]", id, employee);
 
         employee.setEmployeeId(id);
-        return employeeService.update(employee);
+        if (ifMatch != null) {
+            employee.setVersion(ETags.parseIfMatch(ifMatch));
+        }
+
+        try {
+            Employee updatedEmployee = employeeService.update(employee);
+            return ResponseEntity.ok().eTag(ETags.of(updatedEmployee.getVersion(), request)).body(updatedEmployee);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Employee " + id + " has changed since version " + employee.getVersion(), e);
+        }
+    }
+
+    /**
+     * Changes only the fields named in a JSON Merge Patch; a null removes the field. Like the direct report operations
+     * below it answers 204 with the new ETag rather than echoing the whole employee back, and honours If-Match.
+     */
+    @PatchMapping(value = "/employee/{id}", consumes = {MERGE_PATCH_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@PathVariable String id, @RequestBody Map<String, Object> changes,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LOG.debug("Received employee patch request for id [{}] with [{}]", id, changes);
+
+        Long version = ifMatch == null ? null : ETags.parseIfMatch(ifMatch);
+        try {
+            return noContent(employeeService.patch(id, version, changes));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        }
+    }
+
+    @PutMapping("/employee/{id}/direct-reports/{reportId}")
+    public ResponseEntity<Void> addDirectReport(@PathVariable String id, @PathVariable String reportId,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LOG.debug("Received add direct report request for id [{}] and report [{}]", id, reportId);
+
+        Long version = ifMatch == null ? null : ETags.parseIfMatch(ifMatch);
+        try {
+            return noContent(employeeService.addDirectReport(id, version, reportId));
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        }
     }
 
+    @DeleteMapping("/employee/{id}/direct-reports/{reportId}")
+    public ResponseEntity<Void> removeDirectReport(@PathVariable String id, @PathVariable String reportId,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LOG.debug("Received remove direct report request for id [{}] and report [{}]", id, reportId);
+
+        Long version = ifMatch == null ? null : ETags.parseIfMatch(ifMatch);
+        try {
+            return noContent(employeeService.removeDirectReport(id, version, reportId));
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage(), e);
+        }
+    }
+
+    private static ResponseEntity<Void> noContent(Long version) {
+        return ResponseEntity.noContent().eTag(ETags.of(version)).build();
+    }
+
+    // Revalidation is answered from the subtree version alone, without counting the reports again
     @GetMapping("/employee/reporting-structure/{id}")
-    public ReportingStructure generateReportingStructure(@PathVariable String id) {
+    public ReportingStructure generateReportingStructure(@PathVariable String id, WebRequest request) {
         LOG.debug("Received employee reporting structure create request for id [{}]", id);
 
+        Long version = employeeService.getReportingStructureVersion(id);
+        if (version != null && request.checkNotModified(ETags.of(version, request))) {
+            return null;
+        }
+
         return employeeService.generateReportingStructure(id);
     }
 
+    @GetMapping(value = "/employee/reporting-structure", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportReportingStructuresNdjson() {
+        LOG.debug("Received NDJSON reporting structure export request");
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(reportingStructureExporter::exportNdjson);
+    }
+
+    @GetMapping(value = "/employee/reporting-structure", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportReportingStructuresJsonArray() {
+        LOG.debug("Received JSON array reporting structure export request");
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(reportingStructureExporter::exportJsonArray);
+    }
+
+    @GetMapping("/employee/{id}/management-chain")
+    public ManagementChain getManagementChain(@PathVariable String id) {
+        LOG.debug("Received management chain request for id [{}]", id);
+
+        return employeeService.getManagementChain(id);
+    }
+
+    @GetMapping("/employee/{id}/reports-to/{managerId}")
+    public boolean reportsTo(@PathVariable String id, @PathVariable String managerId) {
+        LOG.debug("Received reports-to request for id [{}] and manager [{}]", id, managerId);
+
+        return employeeService.reportsTo(id, managerId);
+    }
+
+    @GetMapping("/employee/{id}/subordinates")
+    public List<String> getSubordinateIds(@PathVariable String id,
+                                          @RequestParam(defaultValue = "0") int offset,
+                                          @RequestParam(defaultValue = "1000") int limit) {
+        LOG.debug("Received subordinates request for id [{}]", id);
+
+        try {
+            return employeeService.getSubordinateIds(id, offset, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/employee/{id}/compensation-rollup")
+    public CompensationRollup getCompensationRollup(@PathVariable String id) {
+        LOG.debug("Received compensation rollup request for id [{}]", id);
+
+        return employeeService.getCompensationRollup(id);
+    }
+
     @PostMapping("/employee/compensation")
     public Compensation createCompensation(@RequestBody Compensation compensation) {
         LOG.debug("Received compensation create request for [{}]", compensation);
@@ -53,9 +311,46 @@ public class EmployeeController {
     }
 
     @GetMapping("/employee/compensation/{id}")
-    public Compensation readCompensation(@PathVariable String id) {
-        LOG.debug("Received compensation read request for id [{}]", id);
+    public Compensation readCompensation(@PathVariable String id,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date asOf,
+                                         WebRequest request) {
+        LOG.debug("Received compensation read request for id [{}] as of [{}]", id, asOf);
+
+        // Entries are never rewritten in place, so a new current entry shows up as a different id
+        Compensation compensation = asOf == null ? employeeService.getCompensation(id) : employeeService.getCompensation(id, asOf);
+        return request.checkNotModified(ETags.of(compensation.getId() + "-" + compensation.getVersion(), request)) ? null : compensation;
+    }
+
+    @GetMapping("/employee/compensation/{id}/history")
+    public List<Compensation> readCompensationHistory(@PathVariable String id,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
+        LOG.debug("Received compensation history request for id [{}] from [{}] to [{}]", id, from, to);
+
+        return employeeService.getCompensationHistory(id,
+                from == null ? new Date(0) : from,
+                to == null ? new Date(Long.MAX_VALUE) : to);
+    }
+
+    @GetMapping("/employee/compensation")
+    public MultiGetResult<Compensation> readCompensations(@RequestParam List<String> ids) {
+        LOG.debug("Received compensation multi-get request for ids [{}]", ids);
+
+        return readCompensationsOf(ids);
+    }
+
+    @PostMapping("/employee/compensation/_mget")
+    public MultiGetResult<Compensation> readCompensations(@RequestBody MultiGetRequest request) {
+        LOG.debug("Received compensation multi-get request for ids [{}]", request.getIds());
+
+        return readCompensationsOf(request.getIds());
+    }
 
-        return employeeService.getCompensation(id);
+    private MultiGetResult<Compensation> readCompensationsOf(List<String> ids) {
+        try {
+            return employeeService.getCompensations(ids);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,132 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.MultiGetRequest;
+import com.mindex.challenge.data.MultiGetResult;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The EmployeeController endpoints served by WebFlux when the "reactive" profile is active. Bulk import, partial
+ * updates, field selection and expansion, the change feed, search and the endpoints answered from the in-memory
+ * indexes alone are only served by the servlet stack. So are CBOR and compact JSON; WebFlux negotiates Smile itself.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveEmployeeController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeController.class);
+
+    @Autowired
+    private ReactiveEmployeeService employeeService;
+
+    @PostMapping("/employee")
+    public Mono<Employee> create(@RequestBody Employee employee) {
+        LOG.debug("Received employee create request for [{}]", employee);
+
+        return employeeService.create(employee)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @GetMapping("/employee/{id}")
+    public Mono<Employee> read(@PathVariable String id, ServerWebExchange exchange) {
+        LOG.debug("Received employee read request for id [{}]", id);
+
+        // An empty result after checkNotModified leaves the 304 it wrote as the response
+        return employeeService.read(id)
+                .filter(employee -> !exchange.checkNotModified(ETags.of(employee.getVersion(), exchange)));
+    }
+
+    @GetMapping("/employee")
+    public Mono<MultiGetResult<Employee>> readAll(@RequestParam List<String> ids) {
+        LOG.debug("Received employee multi-get request for ids [{}]", ids);
+
+        return employeeService.readAll(ids)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @PostMapping("/employee/_mget")
+    public Mono<MultiGetResult<Employee>> readAll(@RequestBody MultiGetRequest request) {
+        LOG.debug("Received employee multi-get request for ids [{}]", request.getIds());
+
+        return employeeService.readAll(request.getIds())
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @PutMapping("/employee/{id}")
+    public Mono<ResponseEntity<Employee>> update(@PathVariable String id, @RequestBody Employee employee,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 ServerWebExchange exchange) {
+        LOG.debug("Received employee update request for id [{}] and employee [{}]", id, employee);
+
+        employee.setEmployeeId(id);
+        if (ifMatch != null) {
+            employee.setVersion(ETags.parseIfMatch(ifMatch));
+        }
+
+        return employeeService.update(employee)
+                .map(updatedEmployee -> ResponseEntity.ok().eTag(ETags.of(updatedEmployee.getVersion(), exchange)).body(updatedEmployee))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e))
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ResponseStatusException(
+                        ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                        "Employee " + id + " has changed since version " + employee.getVersion(), e));
+    }
+
+    @GetMapping("/employee/reporting-structure/{id}")
+    public Mono<ReportingStructure> generateReportingStructure(@PathVariable String id, ServerWebExchange exchange) {
+        LOG.debug("Received employee reporting structure create request for id [{}]", id);
+
+        return employeeService.getReportingStructureVersion(id)
+                .map(version -> exchange.checkNotModified(ETags.of(version, exchange)))
+                .defaultIfEmpty(false)
+                .flatMap(notModified -> notModified ? Mono.empty() : employeeService.generateReportingStructure(id));
+    }
+
+    @PostMapping("/employee/compensation")
+    public Mono<Compensation> createCompensation(@RequestBody Compensation compensation) {
+        LOG.debug("Received compensation create request for [{}]", compensation);
+
+        return employeeService.createCompensation(compensation);
+    }
+
+    @GetMapping("/employee/compensation/{id}")
+    public Mono<Compensation> readCompensation(@PathVariable String id,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date asOf) {
+        LOG.debug("Received compensation read request for id [{}] as of [{}]", id, asOf);
+
+        return asOf == null ? employeeService.getCompensation(id) : employeeService.getCompensation(id, asOf);
+    }
+
+    @GetMapping("/employee/compensation/{id}/history")
+    public Flux<Compensation> readCompensationHistory(@PathVariable String id,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
+        LOG.debug("Received compensation history request for id [{}] from [{}] to [{}]", id, from, to);
+
+        return employeeService.getCompensationHistory(id,
+                from == null ? new Date(0) : from,
+                to == null ? new Date(Long.MAX_VALUE) : to);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.dao.RepositoryCallCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many repository calls each request made, as the http.server.requests.repository.calls summary tagged
+ * like http.server.requests, and logs it under the repositoryCalls MDC key.
+ *
+ * An async request is recorded once its last dispatch is done. Its Callable and StreamingResponseBody work, which runs
+ * on Spring MVC's task executor (bulk import and the reporting structure export, say), counts towards it through the
+ * CallableProcessingInterceptor side of this filter. Calls made outside any request, like those of a background
+ * bootstrap, only show up in repository.invocations.
+ */
+@Component
+@Profile("!reactive")
+public class RepositoryCallsFilter extends OncePerRequestFilter implements CallableProcessingInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryCallsFilter.class);
+
+    private static final String METRIC_NAME = "http.server.requests.repository.calls";
+    private static final String COUNT_ATTRIBUTE = RepositoryCallsFilter.class.getName() + ".count";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    // Every dispatch of an async request adds to the count the first one started
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger count = (AtomicInteger) request.getAttribute(COUNT_ATTRIBUTE);
+        if (count == null) {
+            count = new AtomicInteger();
+            request.setAttribute(COUNT_ATTRIBUTE, count);
+        }
+
+        RepositoryCallCounter.attach(count);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RepositoryCallCounter.detach();
+            if (!request.isAsyncStarted()) {
+                record(request, count.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int calls) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        summaries.computeIfAbsent(method + " " + uri, key -> DistributionSummary.builder(METRIC_NAME)
+                .description("Repository calls that reached the database per request, async work included")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry))
+                .record(calls);
+
+        MDC.put("repositoryCalls", Integer.toString(calls));
+        try {
+            LOG.debug("Handled [{} {}] with [{}] repository calls", method, uri, calls);
+        } finally {
+            MDC.remove("repositoryCalls");
+        }
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        AtomicInteger count = (AtomicInteger) request.getAttribute(COUNT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (count != null) {
+            RepositoryCallCounter.attach(count);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        RepositoryCallCounter.detach();
+    }
+}
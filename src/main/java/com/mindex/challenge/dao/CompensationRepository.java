@@ -1,9 +1,50 @@
 package com.mindex.challenge.dao;
 
+import com.mindex.challenge.config.CacheConfig;
 import com.mindex.challenge.data.Compensation;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Current compensation lookups are read through the compensations cache, keyed by employee, with the same eviction
+ * and copying rules as the EmployeeRepository. An entry dated in the future only becomes current once the cached
+ * value expires.
+ */
 @Repository
-public interface CompensationRepository extends MongoRepository<Compensation, String> {
+public interface CompensationRepository extends MongoRepository<Compensation, String>, CompensationRepositoryCustom {
+    @Cacheable(cacheNames = CacheConfig.COMPENSATIONS, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER, sync = true)
+    default Compensation findCurrentByEmployee(String employee) {
+        return findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(employee, new Date());
+    }
+
+    Compensation findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String employee, Date asOf);
+
+    @Query(value = "{ 'employee': ?0, 'effectiveDate': { $gte: ?1, $lte: ?2 } }", sort = "{ 'effectiveDate': 1 }")
+    List<Compensation> findHistory(String employee, Date from, Date to);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.COMPENSATIONS, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employee")
+    <S extends Compensation> S insert(S compensation);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.COMPENSATIONS, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.![employee]")
+    <S extends Compensation> List<S> insert(Iterable<S> compensations);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.COMPENSATIONS, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employee")
+    <S extends Compensation> S save(S compensation);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.COMPENSATIONS, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employee")
+    void delete(Compensation compensation);
 }
@@ -0,0 +1,11 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface CompensationRepositoryCustom {
+    List<Compensation> findCurrentByEmployeeIn(Collection<String> employees, Date asOf);
+}
@@ -0,0 +1,39 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.replaceRoot;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class CompensationRepositoryCustomImpl implements CompensationRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Resolves the entry in effect at asOf for every requested employee with one aggregation: newest first within each
+     * employee, then the first entry of each group.
+     */
+    @Override
+    public List<Compensation> findCurrentByEmployeeIn(Collection<String> employees, Date asOf) {
+        Aggregation aggregation = newAggregation(
+                match(where("employee").in(employees).and("effectiveDate").lte(asOf)),
+                sort(Sort.by(Sort.Direction.ASC, "employee").and(Sort.by(Sort.Direction.DESC, "effectiveDate"))),
+                group("employee").first(Aggregation.ROOT).as("current"),
+                replaceRoot("current"));
+
+        return mongoTemplate.aggregate(aggregation, Compensation.class, Compensation.class).getMappedResults();
+    }
+}
@@ -1,10 +1,62 @@
 package com.mindex.challenge.dao;
 
+import com.mindex.challenge.config.CacheConfig;
 import com.mindex.challenge.data.Employee;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Single-employee lookups are read through the employees cache. Loads run under the cache's per-key lock (sync), and
+ * every write evicts its key after the write lands, so a lookup racing a write can never leave the old document
+ * cached. Batch writes evict each of the keys they wrote. The EntityCacheResolver hands every caller its own copy of a
+ * cached employee, so changing a lookup's result does not change the cache.
+ */
 @Repository
-public interface EmployeeRepository extends MongoRepository<Employee, String> {
+public interface EmployeeRepository extends MongoRepository<Employee, String>, EmployeeRepositoryCustom {
+    @Cacheable(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER, sync = true)
     Employee findByEmployeeId(String employeeId);
+
+    List<Employee> findByEmployeeIdIn(Collection<String> employeeIds);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employeeId")
+    <S extends Employee> S insert(S employee);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.![employeeId]")
+    <S extends Employee> List<S> insert(Iterable<S> employees);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employeeId")
+    <S extends Employee> S save(S employee);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.![employeeId]")
+    <S extends Employee> List<S> saveAll(Iterable<S> employees);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0.employeeId")
+    void delete(Employee employee);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0")
+    Long update(String employeeId, Long version, Update update);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES, cacheResolver = CacheConfig.ENTITY_CACHE_RESOLVER,
+            key = "#p0")
+    Long update(String employeeId, Long version, Criteria condition, Update update);
 }
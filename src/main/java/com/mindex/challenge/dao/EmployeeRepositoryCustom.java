@@ -0,0 +1,14 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface EmployeeRepositoryCustom {
+    Long update(String employeeId, Long version, Update update);
+    Long update(String employeeId, Long version, Criteria condition, Update update);
+    List<Employee> findProjectedByEmployeeIdIn(Collection<String> employeeIds, Collection<String> fields);
+}
@@ -0,0 +1,64 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class EmployeeRepositoryCustomImpl implements EmployeeRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Applies the update in place and bumps the version, matching only the given version unless it is null. Only the
+     * new version is read back, so neither the write nor the reply grows with the rest of the document. Returns null
+     * if no employee matched.
+     */
+    @Override
+    public Long update(String employeeId, Long version, Update update) {
+        return update(employeeId, version, null, update);
+    }
+
+    /**
+     * As above, but only applies the update if the employee also matches the condition, which may be null.
+     */
+    @Override
+    public Long update(String employeeId, Long version, Criteria condition, Update update) {
+        Criteria criteria = where("employeeId").is(employeeId);
+        if (version != null) {
+            criteria = criteria.and("version").is(version);
+        }
+        if (condition != null) {
+            criteria = new Criteria().andOperator(criteria, condition);
+        }
+
+        Query query = new Query(criteria);
+        query.fields().include("version");
+
+        Employee updated = mongoTemplate.findAndModify(query, update.inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), Employee.class);
+        return updated == null ? null : updated.getVersion();
+    }
+
+    /**
+     * Reads only the given fields of each employee, leaving the rest null; employeeId is always returned. Projected
+     * employees are partial, so these reads bypass the employees cache.
+     */
+    @Override
+    public List<Employee> findProjectedByEmployeeIdIn(Collection<String> employeeIds, Collection<String> fields) {
+        Query query = new Query(where("employeeId").in(employeeIds));
+        query.fields().include("employeeId");
+        fields.forEach(query.fields()::include);
+
+        return mongoTemplate.find(query, Employee.class);
+    }
+}
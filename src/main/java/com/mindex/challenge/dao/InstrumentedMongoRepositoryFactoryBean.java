@@ -0,0 +1,39 @@
+package com.mindex.challenge.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+import java.io.Serializable;
+
+/**
+ * Adds the RepositoryMetricsInterceptor to each repository proxy. The interceptor sits inside the proxy Spring Data
+ * creates, while the caching advice wraps that proxy from outside, so only calls that miss the cache are timed.
+ */
+public class InstrumentedMongoRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
+        extends MongoRepositoryFactoryBean<T, S, ID> {
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    public InstrumentedMongoRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Override
+    protected RepositoryFactorySupport getFactoryInstance(MongoOperations operations) {
+        RepositoryFactorySupport factory = super.getFactoryInstance(operations);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+
+        if (registry != null) {
+            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                    new RepositoryMetricsInterceptor(registry, repositoryInformation.getRepositoryInterface())));
+        }
+
+        return factory;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Compensation;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * Non-blocking access to the compensation history, with the same queries as the CompensationRepository.
+ */
+@Repository
+public interface ReactiveCompensationRepository extends ReactiveMongoRepository<Compensation, String> {
+    Mono<Compensation> findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String employee, Date asOf);
+
+    @Query(value = "{ 'employee': ?0, 'effectiveDate': { $gte: ?1, $lte: ?2 } }", sort = "{ 'effectiveDate': 1 }")
+    Flux<Compensation> findHistory(String employee, Date from, Date to);
+}
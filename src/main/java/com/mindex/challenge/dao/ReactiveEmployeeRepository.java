@@ -0,0 +1,17 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking access to the same employee documents as the EmployeeRepository, for the reactive runtime mode. Reactive
+ * lookups are not cached.
+ */
+@Repository
+public interface ReactiveEmployeeRepository extends ReactiveMongoRepository<Employee, String> {
+    Flux<Employee> findByEmployeeIdIn(Collection<String> employeeIds);
+}
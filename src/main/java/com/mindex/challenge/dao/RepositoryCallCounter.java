@@ -0,0 +1,33 @@
+package com.mindex.challenge.dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the repository calls that reach the database on the threads a count is attached to. Calls answered from a
+ * cache are not counted. A count can be attached to several threads in turn, or at once, so work a request hands to
+ * another thread adds to the same count.
+ */
+public final class RepositoryCallCounter {
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    private RepositoryCallCounter() {
+    }
+
+    /**
+     * Counts this thread's calls into the given count until detach.
+     */
+    public static void attach(AtomicInteger count) {
+        COUNT.set(count);
+    }
+
+    public static void detach() {
+        COUNT.remove();
+    }
+
+    static void increment() {
+        AtomicInteger count = COUNT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mindex.challenge.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each repository method as the repository.invocations timer, tagged with the repository, method and exception,
+ * and counts the call for the RepositoryCallCounter. Default methods are skipped, since the repository methods they
+ * delegate to are timed themselves.
+ */
+class RepositoryMetricsInterceptor implements MethodInterceptor {
+    static final String METRIC_NAME = "repository.invocations";
+
+    private final MeterRegistry meterRegistry;
+    private final String repository;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    RepositoryMetricsInterceptor(MeterRegistry meterRegistry, Class<?> repositoryInterface) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.isDefault() || method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+
+        RepositoryCallCounter.increment();
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            timers.computeIfAbsent(method, m -> timer(m, "none")).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(method, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(Method method, String exception) {
+        return Timer.builder(METRIC_NAME)
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,41 @@
+package com.mindex.challenge.data;
+
+public class BulkCreateResult {
+
+    private int index;
+    private String employeeId;
+    private String error;
+
+    public BulkCreateResult() {
+    }
+
+    public BulkCreateResult(int index, String employeeId, String error) {
+        this.index = index;
+        this.employeeId = employeeId;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
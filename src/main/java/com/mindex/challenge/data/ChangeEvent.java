@@ -0,0 +1,98 @@
+package com.mindex.challenge.data;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+
+/**
+ * One successful write, as recorded by the change log. Events name what changed rather than carrying it, so a consumer
+ * reads the current document (or just the fields it needs) when it applies the event.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    public enum Entity {
+        EMPLOYEE, COMPENSATION
+    }
+
+    public enum Operation {
+        CREATED, UPDATED
+    }
+
+    private long sequence;
+    private Entity entity;
+    private Operation operation;
+    private String employeeId;
+    // Set for compensation entries only
+    private String compensationId;
+    private Long version;
+    private Date timestamp;
+
+    public ChangeEvent() {
+    }
+
+    public ChangeEvent(Entity entity, Operation operation, String employeeId, String compensationId, Long version) {
+        this.entity = entity;
+        this.operation = operation;
+        this.employeeId = employeeId;
+        this.compensationId = compensationId;
+        this.version = version;
+        this.timestamp = new Date();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public void setEntity(Entity entity) {
+        this.entity = entity;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getCompensationId() {
+        return compensationId;
+    }
+
+    public void setCompensationId(String compensationId) {
+        this.compensationId = compensationId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+}
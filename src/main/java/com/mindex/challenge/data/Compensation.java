@@ -1,16 +1,35 @@
 package com.mindex.challenge.data;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
 
+/**
+ * One entry in an employee's compensation history. The entry in effect at any moment is the one with the latest
+ * effectiveDate on or before it, which the (employee, effectiveDate) index answers without reading the rest of the
+ * history.
+ */
 @Document
+@CompoundIndex(name = "employee_effectiveDate", def = "{'employee': 1, 'effectiveDate': -1}")
 public class Compensation {
     @Id
+    private String id;
     private String employee;
     private float salary;
     private Date effectiveDate;
+    @Version
+    private Long version;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
 
     public String getEmployee() {
         return employee;
@@ -35,4 +54,12 @@ public class Compensation {
     public void setEffectiveDate(Date effectiveDate) {
         this.effectiveDate = effectiveDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
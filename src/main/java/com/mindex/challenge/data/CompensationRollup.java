@@ -0,0 +1,72 @@
+package com.mindex.challenge.data;
+
+/**
+ * Payroll totals for an employee and everyone under them. The salary statistics only cover employees with a
+ * compensation on record, and are left empty when there are none.
+ */
+public class CompensationRollup {
+
+    private String employee;
+    private int headcount;
+    private int compensatedCount;
+    private double salarySum;
+    private Double minSalary;
+    private Double maxSalary;
+    private Double meanSalary;
+
+    public String getEmployee() {
+        return employee;
+    }
+
+    public void setEmployee(String employee) {
+        this.employee = employee;
+    }
+
+    public int getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(int headcount) {
+        this.headcount = headcount;
+    }
+
+    public int getCompensatedCount() {
+        return compensatedCount;
+    }
+
+    public void setCompensatedCount(int compensatedCount) {
+        this.compensatedCount = compensatedCount;
+    }
+
+    public double getSalarySum() {
+        return salarySum;
+    }
+
+    public void setSalarySum(double salarySum) {
+        this.salarySum = salarySum;
+    }
+
+    public Double getMinSalary() {
+        return minSalary;
+    }
+
+    public void setMinSalary(Double minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    public Double getMaxSalary() {
+        return maxSalary;
+    }
+
+    public void setMaxSalary(Double maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+
+    public Double getMeanSalary() {
+        return meanSalary;
+    }
+
+    public void setMeanSalary(Double meanSalary) {
+        this.meanSalary = meanSalary;
+    }
+}
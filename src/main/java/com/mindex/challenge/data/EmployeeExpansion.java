@@ -0,0 +1,27 @@
+package com.mindex.challenge.data;
+
+/**
+ * An employee read with its direct reports expanded in place. Truncated means the node cap stopped the expansion
+ * before the requested depth, so the last level reached still holds stubs where it has reports.
+ */
+public class EmployeeExpansion {
+
+    private Employee employee;
+    private boolean truncated;
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public void setEmployee(Employee employee) {
+        this.employee = employee;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mindex.challenge.data;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Headcounts of the employees matching a search, in total and per department and position. Employees without a
+ * department or position are only counted in the total.
+ */
+public class EmployeeFacets {
+
+    private int total;
+    private Map<String, Integer> departments = new TreeMap<>();
+    private Map<String, Integer> positions = new TreeMap<>();
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public Map<String, Integer> getDepartments() {
+        return departments;
+    }
+
+    public void setDepartments(Map<String, Integer> departments) {
+        this.departments = departments;
+    }
+
+    public Map<String, Integer> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(Map<String, Integer> positions) {
+        this.positions = positions;
+    }
+}
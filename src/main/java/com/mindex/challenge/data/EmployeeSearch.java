@@ -0,0 +1,74 @@
+package com.mindex.challenge.data;
+
+import java.util.Set;
+
+/**
+ * Filters for an employee search, all optional. Department and position match exactly; firstName and lastName match
+ * any name starting with them, ignoring case. cursor is the nextCursor of the previous page.
+ */
+public class EmployeeSearch {
+
+    private String department;
+    private String position;
+    private String firstName;
+    private String lastName;
+    private String cursor;
+    private int limit = 100;
+    private Set<String> fields;
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(Set<String> fields) {
+        this.fields = fields;
+    }
+}
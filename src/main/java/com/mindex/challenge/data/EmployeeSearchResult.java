@@ -0,0 +1,29 @@
+package com.mindex.challenge.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of search results. nextCursor fetches the page after this one, and is null on the last page.
+ */
+public class EmployeeSearchResult {
+
+    private List<Employee> employees = new ArrayList<>();
+    private String nextCursor;
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    public void setEmployees(List<Employee> employees) {
+        this.employees = employees;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mindex.challenge.data;
+
+import java.util.List;
+
+public class ManagementChain {
+
+    private String employee;
+    private List<Employee> managers;
+
+    public String getEmployee() {
+        return employee;
+    }
+
+    public void setEmployee(String employee) {
+        this.employee = employee;
+    }
+
+    public List<Employee> getManagers() {
+        return managers;
+    }
+
+    public void setManagers(List<Employee> managers) {
+        this.managers = managers;
+    }
+}
@@ -0,0 +1,29 @@
+package com.mindex.challenge.data;
+
+import java.util.List;
+import java.util.Set;
+
+public class MultiGetRequest {
+    // The most ids one multi-get answers, however they are sent
+    public static final int MAX_IDS = 1000;
+
+    private List<String> ids;
+    // Employee reads only: the fields to return, or null for all of them
+    private Set<String> fields;
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(Set<String> fields) {
+        this.fields = fields;
+    }
+}
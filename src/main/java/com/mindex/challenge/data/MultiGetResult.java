@@ -0,0 +1,29 @@
+package com.mindex.challenge.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Partial results of a batch read: everything that was found, in request order, plus the ids that were not.
+ */
+public class MultiGetResult<T> {
+
+    private List<T> found = new ArrayList<>();
+    private List<String> notFound = new ArrayList<>();
+
+    public List<T> getFound() {
+        return found;
+    }
+
+    public void setFound(List<T> found) {
+        this.found = found;
+    }
+
+    public List<String> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<String> notFound) {
+        this.notFound = notFound;
+    }
+}
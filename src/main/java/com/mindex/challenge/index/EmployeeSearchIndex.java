@@ -0,0 +1,306 @@
+package com.mindex.challenge.index;
+
+import com.mindex.challenge.BootstrapCompletedEvent;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeFacets;
+import com.mindex.challenge.data.EmployeeSearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of employees by department, position, first name and last name, for searches and facet
+ * counts that would otherwise scan the whole collection (the embedded server has no secondary indexes). Each value
+ * maps to the bitset of employees holding it, so a search is a few bitset intersections and a facet count is a
+ * cardinality. Names are keyed in lower case in sorted maps, so a prefix is a range of keys.
+ *
+ * Like the OrgGraphIndex it is built once the seed data is loaded and then kept current by EmployeeServiceImpl.
+ * Employees are numbered in the order the index first sees them, which is the order searches return them in, and a
+ * search cursor is the number to carry on from. A rebuild numbers them afresh, so each cursor also names the build it
+ * was handed out by ("3.120" is number 120 of build 3) and is refused once the index has been rebuilt since.
+ */
+@Component
+@DependsOn("dataBootstrap")
+public class EmployeeSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeSearchIndex.class);
+
+    private static final int REBUILD_PAGE_SIZE = 10000;
+    private static final BitSet NONE = new BitSet();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private String[] ids = new String[0];
+    private String[] departments = new String[0];
+    private String[] positions = new String[0];
+    // Names are held in lower case, as they are keyed
+    private String[] firstNames = new String[0];
+    private String[] lastNames = new String[0];
+    private int size;
+    private int generation;
+
+    private final Map<String, BitSet> byDepartment = new HashMap<>();
+    private final Map<String, BitSet> byPosition = new HashMap<>();
+    private final TreeMap<String, BitSet> byFirstName = new TreeMap<>();
+    private final TreeMap<String, BitSet> byLastName = new TreeMap<>();
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @EventListener(BootstrapCompletedEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        Query query = new Query();
+        query.fields().include("employeeId").include("firstName").include("lastName").include("position")
+                .include("department");
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            generation++;
+
+            // Natural-order pages, for the reasons given in OrgGraphIndex
+            for (int skip = 0; ; skip += REBUILD_PAGE_SIZE) {
+                List<Employee> employees = mongoTemplate.find(query.skip(skip).limit(REBUILD_PAGE_SIZE), Employee.class);
+                employees.forEach(this::index);
+
+                if (employees.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LOG.info("Built employee search index of [{}] employees in [{}] ms", size, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds the ids of up to search.limit employees matching the search to the page, starting from search.cursor (or
+     * from the first match without one), and returns the cursor to continue from, or null if there are no more matches.
+     *
+     * @throws IllegalArgumentException if the cursor was not handed out by this index
+     * @throws ConcurrentModificationException if the index has been rebuilt since the cursor was handed out
+     */
+    public String search(EmployeeSearch search, List<String> page) {
+        lock.readLock().lock();
+        try {
+            int position = search.getCursor() == null ? 0 : parseCursor(search.getCursor());
+            BitSet matches = matching(search);
+
+            int node = matches.nextSetBit(position);
+            while (node >= 0 && page.size() < search.getLimit()) {
+                page.add(ids[node]);
+                node = matches.nextSetBit(node + 1);
+            }
+            return node < 0 ? null : generation + "." + node;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public EmployeeFacets getFacets(EmployeeSearch search) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = matching(search);
+
+            EmployeeFacets facets = new EmployeeFacets();
+            facets.setTotal(matches.cardinality());
+            countInto(byDepartment, matches, facets.getDepartments());
+            countInto(byPosition, matches, facets.getPositions());
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the employee's current department, position and names.
+     */
+    public void update(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            index(employee);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records a new value, or null, for one field of the employee; fields the index does not cover are ignored.
+     */
+    public void update(String employeeId, String field, String value) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeFor(employeeId);
+            switch (field) {
+                case "department":
+                    departments[node] = move(byDepartment, departments[node], value, node);
+                    break;
+                case "position":
+                    positions[node] = move(byPosition, positions[node], value, node);
+                    break;
+                case "firstName":
+                    firstNames[node] = moveName(byFirstName, firstNames[node], value, node);
+                    break;
+                case "lastName":
+                    lastNames[node] = moveName(byLastName, lastNames[node], value, node);
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the position the cursor carries on from
+    private int parseCursor(String cursor) {
+        int separator = cursor.indexOf('.');
+        int cursorGeneration;
+        int position;
+        try {
+            cursorGeneration = Integer.parseInt(cursor.substring(0, Math.max(separator, 0)));
+            position = Integer.parseInt(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor [" + cursor + "]");
+        }
+
+        if (separator < 0 || position < 0) {
+            throw new IllegalArgumentException("Invalid cursor [" + cursor + "]");
+        }
+        if (cursorGeneration != generation) {
+            throw new ConcurrentModificationException("Cursor [" + cursor + "] is from before the search index was rebuilt");
+        }
+        return position;
+    }
+
+    private void index(Employee employee) {
+        int node = nodeFor(employee.getEmployeeId());
+        departments[node] = move(byDepartment, departments[node], employee.getDepartment(), node);
+        positions[node] = move(byPosition, positions[node], employee.getPosition(), node);
+        firstNames[node] = moveName(byFirstName, firstNames[node], employee.getFirstName(), node);
+        lastNames[node] = moveName(byLastName, lastNames[node], employee.getLastName(), node);
+    }
+
+    private BitSet matching(EmployeeSearch search) {
+        BitSet matches = new BitSet(size);
+        matches.set(0, size);
+
+        if (search.getDepartment() != null) {
+            matches.and(byDepartment.getOrDefault(search.getDepartment(), NONE));
+        }
+        if (search.getPosition() != null) {
+            matches.and(byPosition.getOrDefault(search.getPosition(), NONE));
+        }
+        if (search.getFirstName() != null) {
+            matches.and(startingWith(byFirstName, search.getFirstName()));
+        }
+        if (search.getLastName() != null) {
+            matches.and(startingWith(byLastName, search.getLastName()));
+        }
+
+        return matches;
+    }
+
+    private static BitSet startingWith(TreeMap<String, BitSet> names, String prefix) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        BitSet matches = new BitSet();
+        for (BitSet nodes : names.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            matches.or(nodes);
+        }
+        return matches;
+    }
+
+    private static void countInto(Map<String, BitSet> index, BitSet matches, Map<String, Integer> counts) {
+        BitSet scratch = new BitSet();
+        for (Map.Entry<String, BitSet> entry : index.entrySet()) {
+            scratch.clear();
+            scratch.or(entry.getValue());
+            scratch.and(matches);
+
+            int count = scratch.cardinality();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+    }
+
+    // Returns the new value, so callers can store it in the same statement
+    private static String move(Map<String, BitSet> index, String oldValue, String newValue, int node) {
+        if (oldValue != null) {
+            BitSet nodes = index.get(oldValue);
+            nodes.clear(node);
+            if (nodes.isEmpty()) {
+                index.remove(oldValue);
+            }
+        }
+        if (newValue != null) {
+            index.computeIfAbsent(newValue, value -> new BitSet()).set(node);
+        }
+        return newValue;
+    }
+
+    private static String moveName(Map<String, BitSet> index, String oldName, String newName, int node) {
+        return move(index, oldName, newName == null ? null : newName.toLowerCase(Locale.ROOT), node);
+    }
+
+    private int nodeFor(String employeeId) {
+        Integer existing = nodesById.get(employeeId);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (size == ids.length) {
+            int capacity = Math.max(16, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            departments = Arrays.copyOf(departments, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+        }
+
+        int node = size++;
+        ids[node] = employeeId;
+        nodesById.put(employeeId, node);
+        return node;
+    }
+
+    private void clear() {
+        nodesById.clear();
+        ids = new String[0];
+        departments = new String[0];
+        positions = new String[0];
+        firstNames = new String[0];
+        lastNames = new String[0];
+        size = 0;
+        byDepartment.clear();
+        byPosition.clear();
+        byFirstName.clear();
+        byLastName.clear();
+    }
+}
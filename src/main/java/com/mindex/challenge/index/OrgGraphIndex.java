@@ -0,0 +1,1017 @@
+package com.mindex.challenge.index;
+
+import com.mindex.challenge.BootstrapCompletedEvent;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the org chart, kept as int-indexed adjacency arrays rather than Employee objects. Every node
+ * carries its precomputed numberOfReports and payroll rollup, so reporting structures and compensation rollups are
+ * answered without touching Mongo.
+ *
+ * The index is built from the employee and compensation collections once the seed data is loaded (and again after a
+ * background load completes), and then kept current by EmployeeServiceImpl: when an employee's directReports or
+ * salary change, only that employee and its ancestors are adjusted. A salary dated in the future waits in a queue and
+ * is applied by the first rollup read after its date. Reports are counted once per path, the same way
+ * the recursive traversal counts them, and reports whose documents do not exist (yet) still count. Edges that would
+ * close a cycle are never linked.
+ *
+ * Each node also carries a subtree version, restamped on the node and everything above it whenever the set of
+ * employees under it changes, which lets clients revalidate a cached reporting structure without recounting it.
+ */
+@Component
+@DependsOn("dataBootstrap")
+public class OrgGraphIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrgGraphIndex.class);
+
+    private static final int[] NO_EDGES = new int[0];
+
+    // The embedded server has no cursors: a plain find answers in a single reply, which overflows the message size
+    // limit on a large collection, and a batch size cuts the read off after the first batch. Rebuilds read in pages of
+    // this size instead.
+    private static final int REBUILD_PAGE_SIZE = 10000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private String[] ids = new String[0];
+    private boolean[] present = new boolean[0];
+    private int[][] children = new int[0][];
+    private int[] childCounts = new int[0];
+    private int[][] parents = new int[0][];
+    private int[] parentCounts = new int[0];
+    private int[] reportCounts = new int[0];
+    private int size;
+
+    // Payroll aggregates over each node's subtree, the node itself included, counted per path like reportCounts.
+    // salaries holds the node's own salary, or NaN when it has no compensation.
+    private double[] salaries = new double[0];
+    private int[] compensatedCounts = new int[0];
+    private double[] salarySums = new double[0];
+    private double[] salaryMins = new double[0];
+    private double[] salaryMaxes = new double[0];
+
+    // When each node's salary took effect, and the salaries dated after now, soonest first. nextPendingSalary is the
+    // date of the soonest, read without the lock so that a rollup only takes the write lock once one is due.
+    private long[] salaryDates = new long[0];
+    private final PriorityQueue<PendingSalary> pendingSalaries =
+            new PriorityQueue<>(Comparator.comparingLong(PendingSalary::getEffectiveDate));
+    private volatile long nextPendingSalary = Long.MAX_VALUE;
+
+    // Every rebuild starts the clock from the wall clock, so a stamp handed out before a restart is never reused.
+    private long[] subtreeVersions = new long[0];
+    private long versionClock;
+
+    // Euler tour of the primary-manager forest: a node's subtree occupies tourOrder[tourEnter[node] + 1, tourExit[node]).
+    // A node's primary manager is parents[node][0]. New nodes are appended as roots of their own; the tour is only
+    // rebuilt, on the first query after, when some node's primary manager changes.
+    private int[] tourEnter = new int[0];
+    private int[] tourExit = new int[0];
+    private int[] tourOrder = new int[0];
+    private boolean tourValid;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @EventListener(BootstrapCompletedEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        Query query = new Query();
+        query.fields().include("employeeId").include("directReports");
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            versionClock = Math.max(versionClock + 1, System.currentTimeMillis());
+
+            for (int skip = 0; ; skip += REBUILD_PAGE_SIZE) {
+                List<Employee> employees = readPage(query, skip, Employee.class);
+                for (Employee employee : employees) {
+                    int node = nodeFor(employee.getEmployeeId());
+                    present[node] = true;
+
+                    if (employee.getDirectReports() != null) {
+                        for (Employee directReport : employee.getDirectReports()) {
+                            addEdge(node, nodeFor(directReport.getEmployeeId()));
+                        }
+                    }
+                }
+
+                if (employees.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            // Each employee keeps the latest entry already in effect, and later ones are queued. Sorting or filtering
+            // by date would have the server sort or scan the whole collection again for every page, so the dates are
+            // compared here instead.
+            Query compensationQuery = new Query();
+            compensationQuery.fields().include("employee").include("salary").include("effectiveDate");
+            long now = System.currentTimeMillis();
+            int undated = 0;
+
+            for (int skip = 0; ; skip += REBUILD_PAGE_SIZE) {
+                List<Compensation> compensations = readPage(compensationQuery, skip, Compensation.class);
+                for (Compensation compensation : compensations) {
+                    // Written before entries were dated; the current compensation lookups never match them either
+                    if (compensation.getEffectiveDate() == null) {
+                        undated++;
+                        continue;
+                    }
+
+                    long effectiveDate = compensation.getEffectiveDate().getTime();
+                    int node = nodeFor(compensation.getEmployee());
+
+                    if (effectiveDate > now) {
+                        pendingSalaries.add(new PendingSalary(node, compensation.getSalary(), effectiveDate));
+                    } else if (Double.isNaN(salaries[node]) || effectiveDate >= salaryDates[node]) {
+                        salaries[node] = compensation.getSalary();
+                        salaryDates[node] = effectiveDate;
+                    }
+                }
+
+                if (compensations.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            if (undated > 0) {
+                LOG.warn("Skipped [{}] compensation entries without an effectiveDate", undated);
+            }
+            nextPendingSalary = pendingSalaries.isEmpty() ? Long.MAX_VALUE : pendingSalaries.peek().getEffectiveDate();
+
+            computeReportCounts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LOG.info("Built org graph index of [{}] employees in [{}] ms", size, System.currentTimeMillis() - start);
+    }
+
+    // Pages follow natural order, which the server answers by skipping rather than sorting. Inserts land at the end
+    // of that order, so they cannot shift a page that is still to be read.
+    private <T> List<T> readPage(Query query, int skip, Class<T> type) {
+        return mongoTemplate.find(query.skip(skip).limit(REBUILD_PAGE_SIZE), type);
+    }
+
+    /**
+     * Returns the number of reports under the employee, or null if the index has never seen that employee.
+     */
+    public Integer getNumberOfReports(String employeeId) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employeeId);
+            return node == null || !present[node] ? null : reportCounts[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the reporting structures of the employees at the next limit positions of the index to the page and returns
+     * the position to continue from, or -1 once every position has been read. Positions are only renumbered by a
+     * rebuild, so an employee added between pages is picked up if it lands after the current position.
+     */
+    public int getReportingStructures(int position, int limit, List<ReportingStructure> page) {
+        lock.readLock().lock();
+        try {
+            int end = Math.min(size, position + limit);
+            for (int node = position; node < end; node++) {
+                if (present[node]) {
+                    ReportingStructure reportingStructure = new ReportingStructure();
+                    reportingStructure.setEmployee(ids[node]);
+                    reportingStructure.setNumberOfReports(reportCounts[node]);
+                    page.add(reportingStructure);
+                }
+            }
+            return end < size ? end : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a stamp that changes whenever the set of employees under the given one does, or null if the index has
+     * never seen that employee.
+     */
+    public Long getSubtreeVersion(String employeeId) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employeeId);
+            return node == null || !present[node] ? null : subtreeVersions[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the employee's managers, nearest first, or null if the index has never seen that employee.
+     * An employee listed under several managers follows the one it was linked to first.
+     */
+    public List<String> getManagementChain(String employeeId) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employeeId);
+            if (node == null || !present[node]) {
+                return null;
+            }
+
+            List<String> managers = new ArrayList<>();
+            for (int current = node; parentCounts[current] > 0; ) {
+                current = parents[current][0];
+                managers.add(ids[current]);
+            }
+            return managers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the employee sits anywhere under the manager, or null if the index has never seen one of them.
+     * Answered in constant time from the Euler tour, following each employee's primary manager as the management
+     * chain does.
+     */
+    public Boolean isUnder(String employeeId, String managerId) {
+        lock.readLock().lock();
+        try {
+            ensureTour();
+            Integer node = nodesById.get(employeeId);
+            Integer manager = nodesById.get(managerId);
+            if (node == null || manager == null || !present[node] || !present[manager]) {
+                return null;
+            }
+
+            return tourEnter[manager] < tourEnter[node] && tourEnter[node] < tourExit[manager];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the ids of everyone under the manager, or null if the index has never seen the manager. The
+     * subtree is a contiguous range of the Euler tour, so a page costs only its own length.
+     */
+    public List<String> getSubordinates(String managerId, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            ensureTour();
+            Integer manager = nodesById.get(managerId);
+            if (manager == null || !present[manager]) {
+                return null;
+            }
+
+            int from = (int) Math.min(tourExit[manager], tourEnter[manager] + 1L + Math.max(0, offset));
+            int to = (int) Math.min(tourExit[manager], (long) from + Math.max(0, limit));
+
+            List<String> subordinates = new ArrayList<>(to - from);
+            for (int position = from; position < to; position++) {
+                subordinates.add(ids[tourOrder[position]]);
+            }
+            return subordinates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the reports under the given employee by walking the graph on the supplied pool, or returns null if the
+     * index has never seen that employee. Reports are counted once per path, as getNumberOfReports counts them. Each
+     * task walks depth first through its own explicit stack and, every split threshold reports, hands half of the
+     * siblings still waiting at its shallowest level to a new task, so neither depth nor width is bounded by the Java
+     * stack or a single core. Only the employees on a task's current path are marked, which stops cycles without
+     * hiding a report that is reached again along another path.
+     */
+    public Integer countReports(String employeeId, ForkJoinPool pool, int splitThreshold) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employeeId);
+            if (node == null || !present[node]) {
+                return null;
+            }
+
+            BitSet path = new BitSet(size);
+            path.set(node);
+            return pool.invoke(new CountReportsTask(node, 0, childCounts[node], path, Math.max(1, splitThreshold)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the payroll aggregates for the employee and everyone under it, or null if the index has never seen that
+     * employee. Salaries that have come into effect since the last call are applied first.
+     */
+    public CompensationRollup getCompensationRollup(String employeeId) {
+        applyDueSalaries();
+
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employeeId);
+            if (node == null || !present[node]) {
+                return null;
+            }
+
+            CompensationRollup rollup = new CompensationRollup();
+            rollup.setEmployee(employeeId);
+            rollup.setHeadcount(1 + reportCounts[node]);
+            rollup.setCompensatedCount(compensatedCounts[node]);
+            rollup.setSalarySum(salarySums[node]);
+            if (compensatedCounts[node] > 0) {
+                rollup.setMinSalary(salaryMins[node]);
+                rollup.setMaxSalary(salaryMaxes[node]);
+                rollup.setMeanSalary(salarySums[node] / compensatedCounts[node]);
+            }
+            return rollup;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a new compensation entry for the employee. One already in effect replaces the employee's salary, and
+     * adjusts the payroll aggregates of the employee and everyone above it, unless the salary in effect is dated later.
+     * One dated in the future is queued until its date.
+     */
+    public void updateSalary(String employeeId, double salary, Date effectiveDate) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeFor(employeeId);
+
+            if (effectiveDate.getTime() > System.currentTimeMillis()) {
+                pendingSalaries.add(new PendingSalary(node, salary, effectiveDate.getTime()));
+                nextPendingSalary = pendingSalaries.peek().getEffectiveDate();
+            } else {
+                applySalary(node, salary, effectiveDate.getTime());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called without the lock held
+    private void applyDueSalaries() {
+        if (nextPendingSalary > System.currentTimeMillis()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            while (!pendingSalaries.isEmpty() && pendingSalaries.peek().getEffectiveDate() <= now) {
+                PendingSalary pending = pendingSalaries.poll();
+                applySalary(pending.node, pending.salary, pending.effectiveDate);
+            }
+            nextPendingSalary = pendingSalaries.isEmpty() ? Long.MAX_VALUE : pendingSalaries.peek().getEffectiveDate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applySalary(int node, double salary, long effectiveDate) {
+        double previous = salaries[node];
+        if (!Double.isNaN(previous) && effectiveDate < salaryDates[node]) {
+            return;
+        }
+        salaries[node] = salary;
+        salaryDates[node] = effectiveDate;
+
+        if (Double.isNaN(previous)) {
+            propagate(node, 0, 1, salary);
+        } else {
+            propagate(node, 0, 0, salary - previous);
+        }
+        refreshExtremes(node);
+    }
+
+    /**
+     * Fails if saving the employee would make it report to itself, directly or through its own reports. A direct report
+     * without an employeeId names no one, and is rejected with an IllegalArgumentException.
+     */
+    public void checkForCycles(Employee employee) {
+        if (employee.getDirectReports() == null) {
+            return;
+        }
+
+        for (Employee directReport : employee.getDirectReports()) {
+            if (directReport == null || directReport.getEmployeeId() == null) {
+                throw new IllegalArgumentException("Every direct report must have an employeeId");
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(employee.getEmployeeId());
+
+            for (Employee directReport : employee.getDirectReports()) {
+                Integer child = nodesById.get(directReport.getEmployeeId());
+
+                if (directReport.getEmployeeId().equals(employee.getEmployeeId())
+                        || (node != null && child != null && isAncestorOrSelf(child, node))) {
+                    throw new RuntimeException("Employee [" + directReport.getEmployeeId()
+                            + "] cannot report to [" + employee.getEmployeeId() + "] without creating a cycle");
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the employee's current directReports, adjusting the counts of the employee and everyone above it. Only
+     * the edges that differ from the ones already recorded are unlinked or linked, so an update that leaves the
+     * reports alone changes nothing here, and the reports it keeps keep their primary managers.
+     */
+    public void update(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeFor(employee.getEmployeeId());
+            present[node] = true;
+
+            int[] newChildren = NO_EDGES;
+            if (employee.getDirectReports() != null) {
+                newChildren = new int[employee.getDirectReports().size()];
+                for (int i = 0; i < newChildren.length; i++) {
+                    newChildren[i] = nodeFor(employee.getDirectReports().get(i).getEmployeeId());
+                }
+            }
+
+            // How many more times each report is listed now than before. The list may name a report more than once.
+            Map<Integer, Integer> changes = new HashMap<>();
+            for (int i = 0; i < childCounts[node]; i++) {
+                changes.merge(children[node][i], -1, Integer::sum);
+            }
+            for (int child : newChildren) {
+                changes.merge(child, 1, Integer::sum);
+            }
+
+            boolean changed = false;
+            int reportDelta = 0;
+            int compensatedDelta = 0;
+            double salaryDelta = 0;
+            for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                int child = change.getKey();
+                for (int i = change.getValue(); i < 0; i++) {
+                    removeEdge(node, child);
+                    changed = true;
+                    reportDelta -= 1 + reportCounts[child];
+                    compensatedDelta -= compensatedCounts[child];
+                    salaryDelta -= salarySums[child];
+                }
+            }
+            // In the order they are listed, so the new reports are appended as the employee lists them
+            for (int child : newChildren) {
+                if (changes.get(child) <= 0) {
+                    continue;
+                }
+                changes.merge(child, -1, Integer::sum);
+
+                if (isAncestorOrSelf(child, node)) {
+                    LOG.warn("Not linking [{}] under [{}]; it would create a cycle", ids[child], ids[node]);
+                    continue;
+                }
+                addEdge(node, child);
+                changed = true;
+                reportDelta += 1 + reportCounts[child];
+                compensatedDelta += compensatedCounts[child];
+                salaryDelta += salarySums[child];
+            }
+
+            if (changed) {
+                propagate(node, reportDelta, compensatedDelta, salaryDelta);
+                refreshExtremes(node);
+                stampSubtreeVersions(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Links a single direct report under the manager, unless it is already there or would close a cycle.
+     */
+    public void addDirectReport(String managerId, String reportId) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeFor(managerId);
+            int child = nodeFor(reportId);
+            if (contains(children[node], childCounts[node], child)) {
+                return;
+            }
+            if (isAncestorOrSelf(child, node)) {
+                LOG.warn("Not linking [{}] under [{}]; it would create a cycle", reportId, managerId);
+                return;
+            }
+
+            addEdge(node, child);
+            propagate(node, 1 + reportCounts[child], compensatedCounts[child], salarySums[child]);
+            refreshExtremes(node);
+            stampSubtreeVersions(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Unlinks a single direct report from the manager, if it is there.
+     */
+    public void removeDirectReport(String managerId, String reportId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodesById.get(managerId);
+            Integer child = nodesById.get(reportId);
+            if (node == null || child == null || !contains(children[node], childCounts[node], child)) {
+                return;
+            }
+
+            // The stored list may name the same report twice, and a $pull removes every copy
+            while (contains(children[node], childCounts[node], child)) {
+                removeEdge(node, child);
+                propagate(node, -(1 + reportCounts[child]), -compensatedCounts[child], -salarySums[child]);
+            }
+            refreshExtremes(node);
+            stampSubtreeVersions(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Applies additive changes to a node's aggregates and, once per path, to those of every node above it.
+    private void propagate(int node, int reportDelta, int compensatedDelta, double salaryDelta) {
+        if (reportDelta == 0 && compensatedDelta == 0 && salaryDelta == 0) {
+            return;
+        }
+
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            reportCounts[current] += reportDelta;
+            compensatedCounts[current] += compensatedDelta;
+            salarySums[current] += salaryDelta;
+
+            for (int i = 0; i < parentCounts[current]; i++) {
+                pending.push(parents[current][i]);
+            }
+        }
+    }
+
+    // Unlike propagate, visits each node above once however many paths lead to it; they all get the same stamp.
+    private void stampSubtreeVersions(int node) {
+        long version = ++versionClock;
+        Set<Integer> seen = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            if (!seen.add(current)) {
+                continue;
+            }
+
+            subtreeVersions[current] = version;
+            for (int i = 0; i < parentCounts[current]; i++) {
+                pending.push(parents[current][i]);
+            }
+        }
+    }
+
+    // Min and max cannot be adjusted by a delta, so they are recomputed from the children's aggregates, moving up
+    // only while a node's extremes actually change.
+    private void refreshExtremes(int node) {
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            double min = salaryMins[current];
+            double max = salaryMaxes[current];
+            computeExtremes(current);
+
+            if (Double.compare(min, salaryMins[current]) != 0 || Double.compare(max, salaryMaxes[current]) != 0) {
+                for (int i = 0; i < parentCounts[current]; i++) {
+                    pending.push(parents[current][i]);
+                }
+            }
+        }
+    }
+
+    // An empty subtree has a min of +Infinity and a max of -Infinity, so it never wins a comparison.
+    private void computeExtremes(int node) {
+        double min = Double.isNaN(salaries[node]) ? Double.POSITIVE_INFINITY : salaries[node];
+        double max = Double.isNaN(salaries[node]) ? Double.NEGATIVE_INFINITY : salaries[node];
+
+        for (int i = 0; i < childCounts[node]; i++) {
+            int child = children[node][i];
+            min = Math.min(min, salaryMins[child]);
+            max = Math.max(max, salaryMaxes[child]);
+        }
+
+        salaryMins[node] = min;
+        salaryMaxes[node] = max;
+    }
+
+    // Called with the read lock held. Swaps it for the write lock to rebuild the tour, then takes it back, even if the
+    // rebuild fails, since the caller releases it either way.
+    private void ensureTour() {
+        if (tourValid) {
+            return;
+        }
+
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (!tourValid) {
+                buildTour();
+            }
+        } finally {
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void buildTour() {
+        // Group every node under its primary manager as linked lists threaded through firstChild/nextSibling.
+        int[] firstChild = new int[size];
+        int[] nextSibling = new int[size];
+        Arrays.fill(firstChild, -1);
+        for (int node = size - 1; node >= 0; node--) {
+            if (parentCounts[node] > 0) {
+                int manager = parents[node][0];
+                nextSibling[node] = firstChild[manager];
+                firstChild[manager] = node;
+            }
+        }
+
+        tourEnter = new int[size];
+        tourExit = new int[size];
+        tourOrder = new int[size];
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+        int position = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (parentCounts[root] > 0) {
+                continue;
+            }
+
+            int top = 0;
+            stack[0] = root;
+            cursor[root] = firstChild[root];
+            tourEnter[root] = position;
+            tourOrder[position++] = root;
+
+            while (top >= 0) {
+                int node = stack[top];
+                int child = cursor[node];
+
+                if (child >= 0) {
+                    cursor[node] = nextSibling[child];
+                    cursor[child] = firstChild[child];
+                    tourEnter[child] = position;
+                    tourOrder[position++] = child;
+                    stack[++top] = child;
+                } else {
+                    tourExit[node] = position;
+                    top--;
+                }
+            }
+        }
+
+        tourValid = true;
+    }
+
+    // Runs while the caller holds the read lock, so the adjacency arrays cannot change underneath it. Counts the
+    // reports under children[manager][from, to), with path holding the employees above them.
+    private class CountReportsTask extends RecursiveTask<Integer> {
+        private final int manager;
+        private final int from;
+        private final int to;
+        private final BitSet path;
+        private final int splitThreshold;
+
+        CountReportsTask(int manager, int from, int to, BitSet path, int splitThreshold) {
+            this.manager = manager;
+            this.from = from;
+            this.to = to;
+            this.path = path;
+            this.splitThreshold = splitThreshold;
+        }
+
+        @Override
+        protected Integer compute() {
+            List<CountReportsTask> forked = new ArrayList<>();
+            int count = 0;
+            int sinceSplit = 0;
+
+            // Level i of the walk is working through children[nodes[i]][next[i], ends[i])
+            int[] nodes = new int[16];
+            int[] next = new int[16];
+            int[] ends = new int[16];
+            int top = 0;
+            nodes[0] = manager;
+            next[0] = from;
+            ends[0] = to;
+
+            while (top >= 0) {
+                if (next[top] == ends[top]) {
+                    path.clear(nodes[top--]);
+                    continue;
+                }
+
+                int child = children[nodes[top]][next[top]++];
+                if (path.get(child)) {
+                    continue;
+                }
+
+                count++;
+                if (++top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top * 2);
+                    next = Arrays.copyOf(next, top * 2);
+                    ends = Arrays.copyOf(ends, top * 2);
+                }
+                nodes[top] = child;
+                next[top] = 0;
+                ends[top] = childCounts[child];
+                path.set(child);
+
+                if (++sinceSplit >= splitThreshold) {
+                    sinceSplit = 0;
+                    CountReportsTask task = split(nodes, next, ends, top);
+                    if (task != null) {
+                        task.fork();
+                        forked.add(task);
+                    }
+                }
+            }
+
+            for (CountReportsTask task : forked) {
+                count += task.join();
+            }
+            return count;
+        }
+
+        // Takes the later half of the siblings waiting at the shallowest level that has more than one, along with its
+        // path. A level with a single report left keeps it, so a long chain is walked by one task instead of a chain of
+        // tasks each joining the next.
+        private CountReportsTask split(int[] nodes, int[] next, int[] ends, int top) {
+            for (int level = 0; level <= top; level++) {
+                if (ends[level] - next[level] > 1) {
+                    int middle = next[level] + (ends[level] - next[level]) / 2;
+                    BitSet taskPath = (BitSet) path.clone();
+                    for (int deeper = level + 1; deeper <= top; deeper++) {
+                        taskPath.clear(nodes[deeper]);
+                    }
+
+                    CountReportsTask task = new CountReportsTask(nodes[level], middle, ends[level], taskPath,
+                            splitThreshold);
+                    ends[level] = middle;
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class PendingSalary {
+        private final int node;
+        private final double salary;
+        private final long effectiveDate;
+
+        PendingSalary(int node, double salary, long effectiveDate) {
+            this.node = node;
+            this.salary = salary;
+            this.effectiveDate = effectiveDate;
+        }
+
+        long getEffectiveDate() {
+            return effectiveDate;
+        }
+    }
+
+    private boolean isAncestorOrSelf(int candidate, int node) {
+        Set<Integer> seen = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            if (current == candidate) {
+                return true;
+            }
+            if (!seen.add(current)) {
+                continue;
+            }
+
+            for (int i = 0; i < parentCounts[current]; i++) {
+                pending.push(parents[current][i]);
+            }
+        }
+
+        return false;
+    }
+
+    // Iterative post-order walk. Edges back onto the current path close a cycle and are unlinked rather than counted.
+    private void computeReportCounts() {
+        byte[] state = new byte[size];
+        int[] stack = new int[size];
+        int[] nextChild = new int[size];
+
+        for (int root = 0; root < size; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+
+            int top = 0;
+            stack[0] = root;
+            state[root] = 1;
+
+            while (top >= 0) {
+                int node = stack[top];
+
+                if (nextChild[node] < childCounts[node]) {
+                    int child = children[node][nextChild[node]];
+
+                    if (state[child] == 1) {
+                        LOG.warn("Unlinking [{}] from [{}]; it closes a reporting cycle", ids[child], ids[node]);
+                        removeEdge(node, child);
+                    } else {
+                        nextChild[node]++;
+                        if (state[child] == 0) {
+                            state[child] = 1;
+                            stack[++top] = child;
+                        }
+                    }
+                    continue;
+                }
+
+                int reports = 0;
+                int compensated = Double.isNaN(salaries[node]) ? 0 : 1;
+                double salarySum = Double.isNaN(salaries[node]) ? 0 : salaries[node];
+                for (int i = 0; i < childCounts[node]; i++) {
+                    int child = children[node][i];
+                    reports += 1 + reportCounts[child];
+                    compensated += compensatedCounts[child];
+                    salarySum += salarySums[child];
+                }
+                reportCounts[node] = reports;
+                compensatedCounts[node] = compensated;
+                salarySums[node] = salarySum;
+                computeExtremes(node);
+                state[node] = 2;
+                top--;
+            }
+        }
+    }
+
+    private int nodeFor(String employeeId) {
+        Integer existing = nodesById.get(employeeId);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (size == ids.length) {
+            int capacity = Math.max(16, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            present = Arrays.copyOf(present, capacity);
+            children = Arrays.copyOf(children, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            parentCounts = Arrays.copyOf(parentCounts, capacity);
+            reportCounts = Arrays.copyOf(reportCounts, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            compensatedCounts = Arrays.copyOf(compensatedCounts, capacity);
+            salarySums = Arrays.copyOf(salarySums, capacity);
+            salaryMins = Arrays.copyOf(salaryMins, capacity);
+            salaryMaxes = Arrays.copyOf(salaryMaxes, capacity);
+            salaryDates = Arrays.copyOf(salaryDates, capacity);
+            subtreeVersions = Arrays.copyOf(subtreeVersions, capacity);
+        }
+
+        int node = size++;
+        ids[node] = employeeId;
+        children[node] = NO_EDGES;
+        parents[node] = NO_EDGES;
+        salaries[node] = Double.NaN;
+        salaryMins[node] = Double.POSITIVE_INFINITY;
+        salaryMaxes[node] = Double.NEGATIVE_INFINITY;
+        subtreeVersions[node] = versionClock;
+        nodesById.put(employeeId, node);
+
+        // Every node before this one holds one position of the tour, so a node without edges takes the next one
+        if (tourValid) {
+            if (tourOrder.length == node) {
+                tourEnter = Arrays.copyOf(tourEnter, ids.length);
+                tourExit = Arrays.copyOf(tourExit, ids.length);
+                tourOrder = Arrays.copyOf(tourOrder, ids.length);
+            }
+            tourEnter[node] = node;
+            tourExit[node] = node + 1;
+            tourOrder[node] = node;
+        }
+        return node;
+    }
+
+    // Only a change of the child's primary manager moves anything in the tour.
+    private void addEdge(int parent, int child) {
+        if (parentCounts[child] == 0) {
+            tourValid = false;
+        }
+        children[parent] = append(children[parent], childCounts[parent]++, child);
+        parents[child] = append(parents[child], parentCounts[child]++, parent);
+    }
+
+    private void removeEdge(int parent, int child) {
+        int primaryManager = parentCounts[child] > 0 ? parents[child][0] : -1;
+        childCounts[parent] = remove(children[parent], childCounts[parent], child);
+        parentCounts[child] = remove(parents[child], parentCounts[child], parent);
+        if ((parentCounts[child] > 0 ? parents[child][0] : -1) != primaryManager) {
+            tourValid = false;
+        }
+    }
+
+    private static int[] append(int[] edges, int count, int value) {
+        if (count == edges.length) {
+            edges = Arrays.copyOf(edges, Math.max(4, count * 2));
+        }
+        edges[count] = value;
+        return edges;
+    }
+
+    private static boolean contains(int[] edges, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (edges[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Removes one occurrence of value, keeping the remaining edges in order, and returns the new count.
+    private static int remove(int[] edges, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (edges[i] == value) {
+                System.arraycopy(edges, i + 1, edges, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    private void clear() {
+        nodesById.clear();
+        ids = new String[0];
+        present = new boolean[0];
+        children = new int[0][];
+        childCounts = new int[0];
+        parents = new int[0][];
+        parentCounts = new int[0];
+        reportCounts = new int[0];
+        salaries = new double[0];
+        compensatedCounts = new int[0];
+        salarySums = new double[0];
+        salaryMins = new double[0];
+        salaryMaxes = new double[0];
+        salaryDates = new long[0];
+        pendingSalaries.clear();
+        subtreeVersions = new long[0];
+        size = 0;
+        tourValid = false;
+    }
+}
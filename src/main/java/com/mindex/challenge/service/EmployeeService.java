@@ -1,14 +1,43 @@
 package com.mindex.challenge.service;
 
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeExpansion;
+import com.mindex.challenge.data.EmployeeFacets;
+import com.mindex.challenge.data.EmployeeSearch;
+import com.mindex.challenge.data.EmployeeSearchResult;
+import com.mindex.challenge.data.ManagementChain;
+import com.mindex.challenge.data.MultiGetResult;
 import com.mindex.challenge.data.ReportingStructure;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public interface EmployeeService {
     Employee create(Employee employee);
+    List<Employee> createAll(List<Employee> employees);
     Employee read(String id);
+    EmployeeExpansion read(String id, Set<String> fields, int depth);
+    MultiGetResult<Employee> readAll(List<String> ids);
+    MultiGetResult<Employee> readAll(List<String> ids, Set<String> fields);
+    EmployeeSearchResult search(EmployeeSearch search);
+    EmployeeFacets getFacets(EmployeeSearch search);
     Employee update(Employee employee);
+    Long patch(String id, Long version, Map<String, Object> changes);
+    Long addDirectReport(String id, Long version, String reportId);
+    Long removeDirectReport(String id, Long version, String reportId);
     ReportingStructure generateReportingStructure(String id);
+    Long getReportingStructureVersion(String id);
+    ManagementChain getManagementChain(String id);
+    boolean reportsTo(String id, String managerId);
+    List<String> getSubordinateIds(String id, int offset, int limit);
     Compensation createCompensation(Compensation compensation);
     Compensation getCompensation(String id);
+    Compensation getCompensation(String id, Date asOf);
+    List<Compensation> getCompensationHistory(String id, Date from, Date to);
+    MultiGetResult<Compensation> getCompensations(List<String> ids);
+    CompensationRollup getCompensationRollup(String id);
 }
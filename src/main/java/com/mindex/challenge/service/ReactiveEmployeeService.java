@@ -0,0 +1,24 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.MultiGetResult;
+import com.mindex.challenge.data.ReportingStructure;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> create(Employee employee);
+    Mono<Employee> read(String id);
+    Mono<MultiGetResult<Employee>> readAll(List<String> ids);
+    Mono<Employee> update(Employee employee);
+    Mono<ReportingStructure> generateReportingStructure(String id);
+    Mono<Long> getReportingStructureVersion(String id);
+    Mono<Compensation> createCompensation(Compensation compensation);
+    Mono<Compensation> getCompensation(String id);
+    Mono<Compensation> getCompensation(String id, Date asOf);
+    Flux<Compensation> getCompensationHistory(String id, Date from, Date to);
+}
@@ -0,0 +1,136 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Walks the reporting tree one level at a time, resolving each level with a single $in query (split into chunks of
+ * "challenge.reporting-structure.batch-size" ids for very wide levels). The number of queries grows with the depth of
+ * the tree rather than with the number of reports.
+ *
+ * Reports are counted once per path, the same way the recursive and index traversals count them: a report shared by
+ * two managers counts under each, though its document is only fetched once per level. A report that is already on the
+ * path leading to it closes a cycle, which is logged and not followed so the walk always ends.
+ */
+@Component("batched")
+public class BatchedReportingStructureTraversal implements ReportingStructureTraversal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedReportingStructureTraversal.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${challenge.reporting-structure.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public TraversalResult traverse(String employeeId) {
+        Employee employee = employeeRepository.findByEmployeeId(employeeId);
+
+        if (employee == null) {
+            throw new RuntimeException("Invalid employeeId: " + employeeId);
+        }
+
+        List<Path> level = new ArrayList<>();
+        collectReports(employee, new Path(employee.getEmployeeId(), null), level);
+
+        int numberOfReports = 0;
+        int depth = 0;
+        int queryCount = 1;
+
+        while (!level.isEmpty()) {
+            depth++;
+            numberOfReports += level.size();
+
+            Set<String> distinctIds = new LinkedHashSet<>();
+            for (Path path : level) {
+                distinctIds.add(path.employeeId);
+            }
+            List<String> ids = new ArrayList<>(distinctIds);
+            Map<String, Employee> employees = new HashMap<>();
+
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<String> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                List<Employee> directEmployees = employeeRepository.findByEmployeeIdIn(batch);
+                queryCount++;
+
+                if (directEmployees.size() < batch.size()) {
+                    throw new RuntimeException("Invalid employeeId: " + findMissingId(batch, directEmployees));
+                }
+
+                for (Employee directEmployee : directEmployees) {
+                    employees.put(directEmployee.getEmployeeId(), directEmployee);
+                }
+            }
+
+            List<Path> nextLevel = new ArrayList<>();
+            for (Path path : level) {
+                collectReports(employees.get(path.employeeId), path, nextLevel);
+            }
+            level = nextLevel;
+        }
+
+        return new TraversalResult(numberOfReports, depth, queryCount);
+    }
+
+    // Shared with the reactive stack's walk, so that both follow the same counting rule
+    static void collectReports(Employee employee, Path path, List<Path> level) {
+        if (employee.getDirectReports() == null) {
+            return;
+        }
+
+        for (Employee directReport : employee.getDirectReports()) {
+            if (path.contains(directReport.getEmployeeId())) {
+                LOG.warn("Not following [{}] under [{}]; the reporting structure has a cycle",
+                        directReport.getEmployeeId(), employee.getEmployeeId());
+            } else {
+                level.add(new Path(directReport.getEmployeeId(), path));
+            }
+        }
+    }
+
+    private static String findMissingId(List<String> requestedIds, List<Employee> foundEmployees) {
+        Set<String> missing = new HashSet<>(requestedIds);
+        for (Employee employee : foundEmployees) {
+            missing.remove(employee.getEmployeeId());
+        }
+        return String.join(", ", missing);
+    }
+
+    // A report and the chain of managers it was reached through, which levels share rather than copy
+    static class Path {
+        private final String employeeId;
+        private final Path manager;
+
+        Path(String employeeId, Path manager) {
+            this.employeeId = employeeId;
+            this.manager = manager;
+        }
+
+        String getEmployeeId() {
+            return employeeId;
+        }
+
+        boolean contains(String employeeId) {
+            for (Path path = this; path != null; path = path.manager) {
+                if (path.employeeId.equals(employeeId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
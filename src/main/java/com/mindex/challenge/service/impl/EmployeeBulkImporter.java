@@ -0,0 +1,164 @@
+package com.mindex.challenge.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.BulkCreateResult;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.index.OrgGraphIndex;
+import com.mindex.challenge.service.EmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates employees from a stream of NDJSON lines or a JSON array, inserting them in batches of
+ * "challenge.bulk.batch-size" and writing one NDJSON result line per record as each batch lands. Only one batch is
+ * held in memory at a time, whatever the size of the upload.
+ *
+ * A malformed NDJSON line fails just that record, and so does a record that cannot be saved, such as one with a
+ * direct report that has no employeeId. A malformed element in a JSON array ends the import, since the rest of the
+ * array can no longer be parsed reliably. If a batch's insert fails part-way, the records it stored before failing
+ * are still reported as created.
+ */
+@Component
+public class EmployeeBulkImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeBulkImporter.class);
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${challenge.bulk.batch-size:500}")
+    private int batchSize;
+
+    public void importNdjson(InputStream input, OutputStream output) throws IOException {
+        Batch batch = new Batch(output);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        int index = 0;
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                batch.add(index, objectMapper.readValue(line, Employee.class));
+            } catch (JsonProcessingException e) {
+                batch.fail(index, e);
+            }
+            index++;
+        }
+
+        batch.flush();
+        LOG.debug("Imported [{}] NDJSON records", index);
+    }
+
+    public void importJsonArray(InputStream input, OutputStream output) throws IOException {
+        Batch batch = new Batch(output);
+        int index = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                batch.fail(index, new IOException("Expected an array of employees"));
+            } else {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    batch.add(index, objectMapper.readValue(parser, Employee.class));
+                    index++;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            batch.fail(index, e);
+        }
+
+        batch.flush();
+        LOG.debug("Imported [{}] JSON array records", index);
+    }
+
+    // Holds one batch of records, failed ones included, so results are written back in the order they arrived.
+    private class Batch {
+        private final OutputStream output;
+        private final List<BulkCreateResult> results = new ArrayList<>();
+        private final List<Employee> employees = new ArrayList<>();
+
+        Batch(OutputStream output) {
+            this.output = output;
+        }
+
+        // Checked here, one record at a time, since a record that fails in createAll fails the whole batch with it
+        void add(int index, Employee employee) throws IOException {
+            try {
+                orgGraphIndex.checkForCycles(employee);
+            } catch (RuntimeException e) {
+                fail(index, e);
+                return;
+            }
+
+            results.add(new BulkCreateResult(index, null, null));
+            employees.add(employee);
+            flushIfFull();
+        }
+
+        void fail(int index, Exception e) throws IOException {
+            results.add(new BulkCreateResult(index, null, e.getMessage()));
+            flushIfFull();
+        }
+
+        private void flushIfFull() throws IOException {
+            if (results.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            String batchError = null;
+            if (!employees.isEmpty()) {
+                try {
+                    employeeService.createAll(employees);
+                } catch (RuntimeException e) {
+                    LOG.warn("Bulk insert of [{}] employees failed", employees.size(), e);
+                    batchError = e.getMessage();
+                }
+            }
+
+            // createAll leaves the employees it did not store without an id
+            int inserted = 0;
+            for (BulkCreateResult result : results) {
+                if (result.getError() == null) {
+                    String employeeId = employees.get(inserted).getEmployeeId();
+                    if (batchError == null || employeeId != null) {
+                        result.setEmployeeId(employeeId);
+                    } else {
+                        result.setError(batchError);
+                    }
+                    inserted++;
+                }
+
+                output.write(objectMapper.writeValueAsBytes(result));
+                output.write('\n');
+            }
+            output.flush();
+
+            results.clear();
+            employees.clear();
+        }
+    }
+}
@@ -1,16 +1,48 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.changes.ChangeLog;
 import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.ChangeEvent;
+import com.mindex.challenge.data.ChangeEvent.Entity;
+import com.mindex.challenge.data.ChangeEvent.Operation;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeExpansion;
+import com.mindex.challenge.data.EmployeeFacets;
+import com.mindex.challenge.data.EmployeeSearch;
+import com.mindex.challenge.data.EmployeeSearchResult;
+import com.mindex.challenge.data.ManagementChain;
+import com.mindex.challenge.data.MultiGetRequest;
+import com.mindex.challenge.data.MultiGetResult;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.index.EmployeeSearchIndex;
+import com.mindex.challenge.index.OrgGraphIndex;
 import com.mindex.challenge.service.EmployeeService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -18,22 +50,143 @@ public class EmployeeServiceImpl implements EmployeeService {
 
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeServiceImpl.class);
 
+    private static final Set<String> PATCHABLE_FIELDS = new HashSet<>(
+            Arrays.asList("firstName", "lastName", "position", "department"));
+    private static final String DIRECT_REPORTS_FIELD = "directReports";
+    private static final int MAX_SEARCH_LIMIT = 1000;
+    private static final Set<String> PROJECTABLE_FIELDS = new HashSet<>(Arrays.asList("employeeId", "firstName",
+            "lastName", "position", "department", DIRECT_REPORTS_FIELD, "version"));
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
     @Autowired
     private CompensationRepository compensationRepository;
 
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EmployeeWriteLocks employeeWriteLocks;
+
+    @Autowired
+    private Map<String, ReportingStructureTraversal> reportingStructureTraversals;
+
+    @Value("${challenge.reporting-structure.traversal:index}")
+    private String reportingStructureTraversalName;
+
+    @Value("${challenge.employee.expand.max-depth:5}")
+    private int expandMaxDepth;
+
+    @Value("${challenge.employee.expand.max-nodes:1000}")
+    private int expandMaxNodes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ReportingStructureTraversal reportingStructureTraversal;
+    private DistributionSummary reportsCounted;
+    private DistributionSummary traversalDepth;
+    private DistributionSummary traversalQueries;
+
+    @PostConstruct
+    public void init() {
+        reportingStructureTraversal = reportingStructureTraversals.get(reportingStructureTraversalName);
+
+        if (reportingStructureTraversal == null) {
+            throw new IllegalStateException("Unknown reporting structure traversal [" + reportingStructureTraversalName
+                    + "], expected one of " + reportingStructureTraversals.keySet());
+        }
+
+        reportsCounted = traversalSummary("reporting.structure.reports", "Reports counted per reporting structure");
+        traversalDepth = traversalSummary("reporting.structure.depth", "Levels walked per reporting structure");
+        traversalQueries = traversalSummary("reporting.structure.queries", "Queries issued per reporting structure");
+    }
+
+    private DistributionSummary traversalSummary(String name, String description) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("traversal", reportingStructureTraversalName)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     @Override
     public Employee create(Employee employee) {
         LOG.debug("Creating employee [{}]", employee);
 
         employee.setEmployeeId(UUID.randomUUID().toString());
+        orgGraphIndex.checkForCycles(employee);
         employeeRepository.insert(employee);
+        orgGraphIndex.update(employee);
+        employeeSearchIndex.update(employee);
+        publishEmployeeChange(Operation.CREATED, employee.getEmployeeId(), employee.getVersion());
 
         return employee;
     }
 
+    /**
+     * Inserts the employees with one write. If that write fails part-way, the employees it stored before failing are
+     * still indexed and published, the rest are left without an employeeId, and the failure is rethrown. Employees
+     * that fail validation fail the whole call before anything is stored, so callers check each one first.
+     */
+    @Override
+    public List<Employee> createAll(List<Employee> employees) {
+        LOG.debug("Creating [{}] employees", employees.size());
+
+        // A new employee cannot be among its own reports yet, so only the report stubs themselves are checked here
+        for (Employee employee : employees) {
+            orgGraphIndex.checkForCycles(employee);
+        }
+        List<String> ids = new ArrayList<>(employees.size());
+        for (Employee employee : employees) {
+            employee.setEmployeeId(UUID.randomUUID().toString());
+            ids.add(employee.getEmployeeId());
+        }
+
+        List<Employee> stored = employees;
+        RuntimeException failure = null;
+        try {
+            employeeRepository.insert(employees);
+        } catch (RuntimeException e) {
+            failure = e;
+            Set<String> storedIds = new HashSet<>();
+            for (Employee employee : employeeRepository.findByEmployeeIdIn(ids)) {
+                storedIds.add(employee.getEmployeeId());
+            }
+
+            stored = new ArrayList<>(storedIds.size());
+            for (Employee employee : employees) {
+                if (storedIds.contains(employee.getEmployeeId())) {
+                    stored.add(employee);
+                } else {
+                    employee.setEmployeeId(null);
+                }
+            }
+            LOG.warn("Bulk insert stored [{}] of [{}] employees before failing", stored.size(), employees.size(), e);
+        }
+
+        for (Employee employee : stored) {
+            orgGraphIndex.update(employee);
+            employeeSearchIndex.update(employee);
+            publishEmployeeChange(Operation.CREATED, employee.getEmployeeId(), employee.getVersion());
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return employees;
+    }
+
     @Override
     public Employee read(String id) {
         LOG.debug("Creating employee with id [{}]", id);
@@ -47,49 +200,400 @@ public class EmployeeServiceImpl implements EmployeeService {
         return employee;
     }
 
+    /**
+     * Reads only the given fields of the employee (all of them if fields is null) and, for a depth above zero,
+     * replaces its direct report stubs with the reports themselves, read with the same fields, down that many levels.
+     * Each level is a single $in query. An employee reached along more than one path is expanded where it is first
+     * reached, in breadth-first order, and left as a stub everywhere else, so no employee is written out in full twice.
+     *
+     * A level that would take the response past "challenge.employee.expand.max-nodes" employees is left as stubs and
+     * the expansion is marked truncated, so the response stays bounded however wide the tree below gets.
+     */
+    @Override
+    public EmployeeExpansion read(String id, Set<String> fields, int depth) {
+        LOG.debug("Reading fields [{}] of employee with id [{}] expanded to depth [{}]", fields, id, depth);
+
+        if (depth < 0 || depth > expandMaxDepth) {
+            throw new IllegalArgumentException("Depth must be between 0 and " + expandMaxDepth);
+        }
+
+        // Walking down the tree needs each level's directReports, whether or not they were asked for
+        Set<String> projection = checkProjection(fields);
+        if (depth > 0 && !projection.contains(DIRECT_REPORTS_FIELD)) {
+            projection = new HashSet<>(projection);
+            projection.add(DIRECT_REPORTS_FIELD);
+        }
+
+        List<Employee> level = employeeRepository.findProjectedByEmployeeIdIn(Collections.singleton(id), projection);
+
+        if (level.isEmpty()) {
+            throw new RuntimeException("Invalid employeeId: " + id);
+        }
+
+        EmployeeExpansion expansion = new EmployeeExpansion();
+        expansion.setEmployee(level.get(0));
+        Set<String> placed = new HashSet<>(Collections.singleton(id));
+        int nodes = 1;
+
+        for (int expanded = 0; expanded < depth && !level.isEmpty(); expanded++) {
+            Set<String> reportIds = new LinkedHashSet<>();
+            for (Employee employee : level) {
+                if (employee.getDirectReports() != null) {
+                    for (Employee report : employee.getDirectReports()) {
+                        if (!placed.contains(report.getEmployeeId())) {
+                            reportIds.add(report.getEmployeeId());
+                        }
+                    }
+                }
+            }
+
+            if (nodes + reportIds.size() > expandMaxNodes) {
+                expansion.setTruncated(true);
+                break;
+            }
+            nodes += reportIds.size();
+
+            Map<String, Employee> reports = new HashMap<>();
+            if (!reportIds.isEmpty()) {
+                for (Employee report : employeeRepository.findProjectedByEmployeeIdIn(reportIds, projection)) {
+                    reports.put(report.getEmployeeId(), report);
+                }
+            }
+
+            // Reports that do not exist, and every placement of a report after its first, stay as stubs
+            List<Employee> nextLevel = new ArrayList<>(reports.size());
+            for (Employee employee : level) {
+                if (employee.getDirectReports() != null) {
+                    List<Employee> directReports = new ArrayList<>(employee.getDirectReports().size());
+                    for (Employee report : employee.getDirectReports()) {
+                        Employee found = reports.get(report.getEmployeeId());
+                        if (found != null && placed.add(found.getEmployeeId())) {
+                            directReports.add(found);
+                            nextLevel.add(found);
+                        } else {
+                            directReports.add(report);
+                        }
+                    }
+                    employee.setDirectReports(directReports);
+                }
+            }
+
+            level = nextLevel;
+        }
+
+        return expansion;
+    }
+
+    @Override
+    public MultiGetResult<Employee> readAll(List<String> ids) {
+        return readAll(ids, null);
+    }
+
+    @Override
+    public MultiGetResult<Employee> readAll(List<String> ids, Set<String> fields) {
+        checkIds(ids);
+        LOG.debug("Reading fields [{}] of [{}] employees", fields, ids.size());
+
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        List<Employee> found = fields == null
+                ? employeeRepository.findByEmployeeIdIn(uniqueIds)
+                : employeeRepository.findProjectedByEmployeeIdIn(uniqueIds, checkProjection(fields));
+
+        Map<String, Employee> employees = new HashMap<>();
+        for (Employee employee : found) {
+            employees.put(employee.getEmployeeId(), employee);
+        }
+
+        return toMultiGetResult(ids, employees);
+    }
+
+    /**
+     * Finds the page of matching employees in the search index, then reads just that page, with the requested fields,
+     * in one query.
+     */
+    @Override
+    public EmployeeSearchResult search(EmployeeSearch search) {
+        LOG.debug("Searching employees in department [{}] and position [{}] named [{}] [{}] from cursor [{}]",
+                search.getDepartment(), search.getPosition(), search.getFirstName(), search.getLastName(),
+                search.getCursor());
+
+        if (search.getLimit() < 1 || search.getLimit() > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+
+        List<String> ids = new ArrayList<>();
+        String next = employeeSearchIndex.search(search, ids);
+
+        EmployeeSearchResult result = new EmployeeSearchResult();
+        if (!ids.isEmpty()) {
+            result.setEmployees(readAll(ids, search.getFields()).getFound());
+        }
+        result.setNextCursor(next);
+        return result;
+    }
+
+    @Override
+    public EmployeeFacets getFacets(EmployeeSearch search) {
+        LOG.debug("Counting employees in department [{}] and position [{}] named [{}] [{}]",
+                search.getDepartment(), search.getPosition(), search.getFirstName(), search.getLastName());
+
+        return employeeSearchIndex.getFacets(search);
+    }
+
+    // Null asks for every field
+    private static Set<String> checkProjection(Set<String> fields) {
+        if (fields == null) {
+            return PROJECTABLE_FIELDS;
+        }
+
+        for (String field : fields) {
+            if (!PROJECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field [" + field + "], expected some of "
+                        + PROJECTABLE_FIELDS);
+            }
+        }
+
+        return fields;
+    }
+
     @Override
     public Employee update(Employee employee) {
         LOG.debug("Updating employee [{}]", employee);
 
-        return employeeRepository.save(employee);
+        return employeeWriteLocks.write(employee.getEmployeeId(), () -> {
+            // Without a version to compare against, the update applies to whatever version is current now
+            if (employee.getVersion() == null) {
+                employee.setVersion(read(employee.getEmployeeId()).getVersion());
+            }
+
+            // save only matches the stored version, and throws OptimisticLockingFailureException if it has moved on
+            orgGraphIndex.checkForCycles(employee);
+            Employee updatedEmployee = employeeRepository.save(employee);
+            orgGraphIndex.update(updatedEmployee);
+            employeeSearchIndex.update(updatedEmployee);
+            publishEmployeeChange(Operation.UPDATED, updatedEmployee.getEmployeeId(), updatedEmployee.getVersion());
+
+            return updatedEmployee;
+        });
+    }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7396) as $set and $unset of just the named fields. A directReports array
+     * replaces the whole list, as merge patches do for arrays.
+     */
+    @Override
+    public Long patch(String id, Long version, Map<String, Object> changes) {
+        LOG.debug("Patching employee with id [{}] at version [{}] with [{}]", id, version, changes);
+
+        Update update = new Update();
+        Employee structure = null;
+
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String field = change.getKey();
+            Object value = change.getValue();
+
+            if (DIRECT_REPORTS_FIELD.equals(field)) {
+                structure = new Employee();
+                structure.setEmployeeId(id);
+                if (value != null) {
+                    structure.setDirectReports(Arrays.asList(objectMapper.convertValue(value, Employee[].class)));
+                }
+                value = structure.getDirectReports();
+            } else if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Cannot patch field [" + field + "]");
+            } else if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("Field [" + field + "] must be a string");
+            }
+
+            if (value == null) {
+                update.unset(field);
+            } else {
+                update.set(field, value);
+            }
+        }
+
+        Employee changedStructure = structure;
+        return employeeWriteLocks.write(id, () -> {
+            if (changedStructure != null) {
+                orgGraphIndex.checkForCycles(changedStructure);
+            }
+            Long updatedVersion = applyUpdate(id, version, update);
+            if (changedStructure != null) {
+                orgGraphIndex.update(changedStructure);
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (PATCHABLE_FIELDS.contains(change.getKey())) {
+                    employeeSearchIndex.update(id, change.getKey(), (String) change.getValue());
+                }
+            }
+
+            return updatedVersion;
+        });
+    }
+
+    @Override
+    public Long addDirectReport(String id, Long version, String reportId) {
+        LOG.debug("Adding direct report [{}] to employee with id [{}] at version [{}]", reportId, id, version);
+
+        Employee directReport = new Employee();
+        directReport.setEmployeeId(reportId);
+        Employee manager = new Employee();
+        manager.setEmployeeId(id);
+        manager.setDirectReports(Collections.singletonList(directReport));
+
+        // Matched on the id alone, since a stored stub may carry more fields than the one added here
+        Criteria absent = Criteria.where(DIRECT_REPORTS_FIELD).not()
+                .elemMatch(Criteria.where("employeeId").is(reportId));
+
+        return employeeWriteLocks.write(id, () -> {
+            orgGraphIndex.checkForCycles(manager);
+            Long updatedVersion = applyUpdate(id, version, absent, new Update().push(DIRECT_REPORTS_FIELD, directReport));
+            if (updatedVersion == null) {
+                return read(id).getVersion();
+            }
+            orgGraphIndex.addDirectReport(id, reportId);
+
+            return updatedVersion;
+        });
+    }
+
+    @Override
+    public Long removeDirectReport(String id, Long version, String reportId) {
+        LOG.debug("Removing direct report [{}] from employee with id [{}] at version [{}]", reportId, id, version);
+
+        Employee directReport = new Employee();
+        directReport.setEmployeeId(reportId);
+
+        Criteria present = Criteria.where(DIRECT_REPORTS_FIELD + ".employeeId").is(reportId);
+
+        return employeeWriteLocks.write(id, () -> {
+            Long updatedVersion = applyUpdate(id, version, present, new Update().pull(DIRECT_REPORTS_FIELD, directReport));
+            if (updatedVersion == null) {
+                return read(id).getVersion();
+            }
+            orgGraphIndex.removeDirectReport(id, reportId);
+
+            return updatedVersion;
+        });
+    }
+
+    private Long applyUpdate(String id, Long version, Update update) {
+        return applyUpdate(id, version, null, update);
+    }
+
+    /**
+     * A miss is an unknown employee, a version that has moved on, or a condition that does not hold; reading the
+     * employee tells them apart. The last leaves the employee as it is, with no new version and no change published,
+     * and returns null.
+     */
+    private Long applyUpdate(String id, Long version, Criteria condition, Update update) {
+        Long updatedVersion = employeeRepository.update(id, version, condition, update);
+
+        if (updatedVersion == null) {
+            Employee employee = read(id);
+            if (condition == null || (version != null && !version.equals(employee.getVersion()))) {
+                throw new OptimisticLockingFailureException("Employee " + id + " is no longer at version " + version);
+            }
+            return null;
+        }
+
+        publishEmployeeChange(Operation.UPDATED, id, updatedVersion);
+        return updatedVersion;
+    }
+
+    private void publishEmployeeChange(Operation operation, String id, Long version) {
+        changeLog.publish(new ChangeEvent(Entity.EMPLOYEE, operation, id, null, version));
     }
 
     @Override
     public ReportingStructure generateReportingStructure(String id) {
         LOG.debug("Reading employee with id [{}]", id);
 
-        Employee employee = employeeRepository.findByEmployeeId(id);
+        TraversalResult result = reportingStructureTraversal.traverse(id);
+        LOG.debug("Counted [{}] reports for employee [{}] across [{}] levels using [{}] queries",
+                result.getNumberOfReports(), id, result.getDepth(), result.getQueryCount());
 
-        if (employee == null) {
-            throw new RuntimeException("Invalid employeeId: " + id);
+        // The in-memory traversals do not walk level by level, so depth and queries only describe database walks
+        reportsCounted.record(result.getNumberOfReports());
+        if (result.getQueryCount() > 0) {
+            traversalDepth.record(result.getDepth());
+            traversalQueries.record(result.getQueryCount());
         }
 
         ReportingStructure reportingStructure = new ReportingStructure();
-        reportingStructure.setEmployee(employee.getEmployeeId());
-        reportingStructure.setNumberOfReports(findNumberOfDirectReports(employee));
+        reportingStructure.setEmployee(id);
+        reportingStructure.setNumberOfReports(result.getNumberOfReports());
         return reportingStructure;
     }
 
-    private int findNumberOfDirectReports(Employee employee) {
-        // The termination condition for the recursion.
-        if(employee.getDirectReports() == null || employee.getDirectReports().isEmpty()) {
-            return 0;
+    @Override
+    public Long getReportingStructureVersion(String id) {
+        LOG.debug("Reading reporting structure version for employee with id [{}]", id);
+
+        return orgGraphIndex.getSubtreeVersion(id);
+    }
+
+    @Override
+    public ManagementChain getManagementChain(String id) {
+        LOG.debug("Reading management chain for employee with id [{}]", id);
+
+        List<String> managerIds = orgGraphIndex.getManagementChain(id);
+
+        if (managerIds == null) {
+            throw new RuntimeException("Invalid employeeId: " + id);
         }
 
-        int numberOfDirectReports = employee.getDirectReports().size();
+        Map<String, Employee> managersById = new HashMap<>();
+        if (!managerIds.isEmpty()) {
+            for (Employee manager : employeeRepository.findByEmployeeIdIn(managerIds)) {
+                managersById.put(manager.getEmployeeId(), manager);
+            }
+        }
 
-        for(Employee directReport : employee.getDirectReports()) {
-            Employee directEmployee = employeeRepository.findByEmployeeId(directReport.getEmployeeId());
+        List<Employee> managers = new ArrayList<>(managerIds.size());
+        for (String managerId : managerIds) {
+            Employee manager = managersById.get(managerId);
 
-            if (directEmployee == null) {
-                throw new RuntimeException("Invalid employeeId: " + directReport.getEmployeeId());
+            if (manager == null) {
+                throw new RuntimeException("Invalid employeeId: " + managerId);
             }
+            managers.add(manager);
+        }
+
+        ManagementChain managementChain = new ManagementChain();
+        managementChain.setEmployee(id);
+        managementChain.setManagers(managers);
+        return managementChain;
+    }
 
-            // Using recursion to get the nested number of direct reports
-            numberOfDirectReports += findNumberOfDirectReports(directEmployee);
+    @Override
+    public boolean reportsTo(String id, String managerId) {
+        LOG.debug("Checking whether employee [{}] reports to [{}]", id, managerId);
+
+        Boolean reportsTo = orgGraphIndex.isUnder(id, managerId);
+
+        if (reportsTo == null) {
+            throw new RuntimeException("Invalid employeeId: " + id + " or " + managerId);
+        }
+
+        return reportsTo;
+    }
+
+    @Override
+    public List<String> getSubordinateIds(String id, int offset, int limit) {
+        LOG.debug("Listing [{}] subordinates from [{}] of employee with id [{}]", limit, offset, id);
+
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+
+        List<String> subordinates = orgGraphIndex.getSubordinates(id, offset, limit);
+
+        if (subordinates == null) {
+            throw new RuntimeException("Invalid employeeId: " + id);
         }
 
-        return numberOfDirectReports;
+        return subordinates;
     }
 
     @Override
@@ -103,19 +607,101 @@ public class EmployeeServiceImpl implements EmployeeService {
             throw new RuntimeException("Invalid employeeId: " + employeeId);
         }
 
-        // Using insert to prevent updating existing compensation entries
-        return compensationRepository.insert(compensation);
+        // An entry without a date was valid before compensation kept a history; it takes effect now
+        if (compensation.getEffectiveDate() == null) {
+            compensation.setEffectiveDate(new Date());
+        }
+
+        // Compensation is append-only; each create adds an entry to the employee's history
+        Compensation createdCompensation = compensationRepository.insert(compensation);
+        changeLog.publish(new ChangeEvent(Entity.COMPENSATION, Operation.CREATED, employeeId,
+                createdCompensation.getId(), createdCompensation.getVersion()));
+
+        // The index keeps whichever entry is current, and holds on to one dated in the future until its date
+        orgGraphIndex.updateSalary(employeeId, createdCompensation.getSalary(), createdCompensation.getEffectiveDate());
+
+        return createdCompensation;
     }
 
     @Override
     public Compensation getCompensation(String id) {
         LOG.debug("Reading compensation with id [{}]", id);
-        Optional<Compensation> optionalCompensation = compensationRepository.findById(id);
+        Compensation compensation = compensationRepository.findCurrentByEmployee(id);
 
-        if(!optionalCompensation.isPresent()) {
+        if (compensation == null) {
             throw new RuntimeException("Invalid employeeId: " + id);
         }
 
-        return optionalCompensation.get();
+        return compensation;
+    }
+
+    @Override
+    public Compensation getCompensation(String id, Date asOf) {
+        LOG.debug("Reading compensation with id [{}] as of [{}]", id, asOf);
+        Compensation compensation =
+                compensationRepository.findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(id, asOf);
+
+        if (compensation == null) {
+            throw new RuntimeException("No compensation for employeeId " + id + " as of " + asOf);
+        }
+
+        return compensation;
+    }
+
+    @Override
+    public List<Compensation> getCompensationHistory(String id, Date from, Date to) {
+        LOG.debug("Reading compensation history with id [{}] from [{}] to [{}]", id, from, to);
+
+        return compensationRepository.findHistory(id, from, to);
+    }
+
+    @Override
+    public MultiGetResult<Compensation> getCompensations(List<String> ids) {
+        checkIds(ids);
+        LOG.debug("Reading [{}] compensations", ids.size());
+
+        Map<String, Compensation> compensations = new HashMap<>();
+        for (Compensation compensation : compensationRepository.findCurrentByEmployeeIn(new LinkedHashSet<>(ids), new Date())) {
+            compensations.put(compensation.getEmployee(), compensation);
+        }
+
+        return toMultiGetResult(ids, compensations);
+    }
+
+    @Override
+    public CompensationRollup getCompensationRollup(String id) {
+        LOG.debug("Reading compensation rollup for employee with id [{}]", id);
+
+        CompensationRollup rollup = orgGraphIndex.getCompensationRollup(id);
+
+        if (rollup == null) {
+            throw new RuntimeException("Invalid employeeId: " + id);
+        }
+
+        return rollup;
+    }
+
+    static void checkIds(List<String> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids are required");
+        }
+        if (ids.size() > MultiGetRequest.MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MultiGetRequest.MAX_IDS + " ids can be read at once");
+        }
+    }
+
+    private static <T> MultiGetResult<T> toMultiGetResult(List<String> ids, Map<String, T> resultsById) {
+        MultiGetResult<T> result = new MultiGetResult<>();
+
+        for (String id : new LinkedHashSet<>(ids)) {
+            T found = resultsById.get(id);
+            if (found != null) {
+                result.getFound().add(found);
+            } else {
+                result.getNotFound().add(id);
+            }
+        }
+
+        return result;
     }
 }
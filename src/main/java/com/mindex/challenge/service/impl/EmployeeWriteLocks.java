@@ -0,0 +1,60 @@
+package com.mindex.challenge.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Holds an employee's write to Mongo and the index updates that follow it under one lock, so that the OrgGraphIndex
+ * and EmployeeSearchIndex see an employee's writes in the order Mongo applied them. Without it, two updates of the same
+ * employee could reach the indexes in reverse, leaving them with the older directReports until the next rebuild.
+ *
+ * The locks are striped over "challenge.employee.write-lock-stripes" semaphores, so employees that share a stripe also
+ * wait on each other. Semaphores have no owning thread, which lets a reactive write release on whichever thread it
+ * completes.
+ */
+@Component
+public class EmployeeWriteLocks {
+
+    @Value("${challenge.employee.write-lock-stripes:256}")
+    private int stripes;
+
+    private Semaphore[] locks;
+
+    @PostConstruct
+    public void init() {
+        locks = new Semaphore[Math.max(1, stripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Semaphore(1);
+        }
+    }
+
+    public <T> T write(String employeeId, Supplier<T> write) {
+        Semaphore lock = lockFor(employeeId);
+        lock.acquireUninterruptibly();
+        try {
+            return write.get();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Waiting for the lock blocks, so it is taken on the bounded elastic scheduler rather than on the event loop
+    public <T> Mono<T> writeReactive(String employeeId, Supplier<Mono<T>> write) {
+        Semaphore lock = lockFor(employeeId);
+        return Mono.using(() -> {
+                    lock.acquireUninterruptibly();
+                    return lock;
+                }, acquired -> write.get(), Semaphore::release)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Semaphore lockFor(String employeeId) {
+        return locks[Math.floorMod(employeeId.hashCode(), locks.length)];
+    }
+}
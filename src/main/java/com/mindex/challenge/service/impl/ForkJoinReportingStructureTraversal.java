@@ -0,0 +1,55 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.index.OrgGraphIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Walks the OrgGraphIndex adjacency arrays on a dedicated ForkJoinPool, handing waiting subtrees to other cores every
+ * "challenge.reporting-structure.fork-join.split-threshold" reports. Unlike the index traversal it recounts on every
+ * call, but it gives the same answer: shared reports count once per path, and the walk is immune to deep or cyclic
+ * hierarchies. Employees the index does not know about fall back to the batched traversal.
+ */
+@Component("fork-join")
+public class ForkJoinReportingStructureTraversal implements ReportingStructureTraversal {
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private BatchedReportingStructureTraversal batchedTraversal;
+
+    @Value("${challenge.reporting-structure.fork-join.parallelism:0}")
+    private int parallelism;
+
+    @Value("${challenge.reporting-structure.fork-join.split-threshold:1024}")
+    private int splitThreshold;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public TraversalResult traverse(String employeeId) {
+        Integer numberOfReports = orgGraphIndex.countReports(employeeId, pool, splitThreshold);
+
+        if (numberOfReports == null) {
+            return batchedTraversal.traverse(employeeId);
+        }
+
+        return new TraversalResult(numberOfReports, 0, 0);
+    }
+}
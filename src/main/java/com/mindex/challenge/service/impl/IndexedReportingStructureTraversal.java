@@ -0,0 +1,30 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.index.OrgGraphIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Answers from the precomputed counts in the OrgGraphIndex. Employees the index does not know about, such as ones
+ * written straight to the repository, fall back to the batched traversal.
+ */
+@Component("index")
+public class IndexedReportingStructureTraversal implements ReportingStructureTraversal {
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private BatchedReportingStructureTraversal batchedTraversal;
+
+    @Override
+    public TraversalResult traverse(String employeeId) {
+        Integer numberOfReports = orgGraphIndex.getNumberOfReports(employeeId);
+
+        if (numberOfReports == null) {
+            return batchedTraversal.traverse(employeeId);
+        }
+
+        return new TraversalResult(numberOfReports, 0, 0);
+    }
+}
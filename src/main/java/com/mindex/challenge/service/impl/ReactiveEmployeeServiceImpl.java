@@ -0,0 +1,285 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.ReactiveCompensationRepository;
+import com.mindex.challenge.dao.ReactiveEmployeeRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.MultiGetResult;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.index.OrgGraphIndex;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import com.mindex.challenge.service.impl.BatchedReportingStructureTraversal.Path;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The EmployeeService contract on reactive repositories, for the reactive runtime mode. The OrgGraphIndex is kept in
+ * step with writes just as the servlet stack does. Its calls do no I/O, but they take the index's locks, and can wait
+ * there behind a rebuild, a fork-join count or an Euler tour rebuild, so they run on the bounded elastic scheduler
+ * rather than on the event loop.
+ *
+ * The reporting structure is walked one level at a time like the batched traversal, and counted the same way, once
+ * per path. Each level's distinct ids are split into chunks of "challenge.reactive.reporting-structure.chunk-size" that
+ * are looked up concurrently, at most "challenge.reactive.reporting-structure.concurrency" at once.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeServiceImpl.class);
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private ReactiveCompensationRepository compensationRepository;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private EmployeeWriteLocks employeeWriteLocks;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${challenge.reactive.reporting-structure.chunk-size:64}")
+    private int chunkSize;
+
+    @Value("${challenge.reactive.reporting-structure.concurrency:16}")
+    private int concurrency;
+
+    private DistributionSummary reportsCounted;
+    private DistributionSummary traversalDepth;
+    private DistributionSummary traversalQueries;
+
+    @PostConstruct
+    public void init() {
+        reportsCounted = traversalSummary("reporting.structure.reports", "Reports counted per reporting structure");
+        traversalDepth = traversalSummary("reporting.structure.depth", "Levels walked per reporting structure");
+        traversalQueries = traversalSummary("reporting.structure.queries", "Queries issued per reporting structure");
+    }
+
+    private DistributionSummary traversalSummary(String name, String description) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("traversal", "reactive")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Employee> create(Employee employee) {
+        LOG.debug("Creating employee [{}]", employee);
+
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        return updateIndex(() -> orgGraphIndex.checkForCycles(employee))
+                .then(employeeRepository.insert(employee))
+                .flatMap(created -> updateIndex(() -> orgGraphIndex.update(created)).thenReturn(created));
+    }
+
+    @Override
+    public Mono<Employee> read(String id) {
+        LOG.debug("Reading employee with id [{}]", id);
+
+        return employeeRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeId: " + id)));
+    }
+
+    @Override
+    public Mono<MultiGetResult<Employee>> readAll(List<String> ids) {
+        try {
+            EmployeeServiceImpl.checkIds(ids);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        LOG.debug("Reading [{}] employees", ids.size());
+
+        return employeeRepository.findByEmployeeIdIn(new LinkedHashSet<>(ids))
+                .collectMap(Employee::getEmployeeId)
+                .map(employees -> toMultiGetResult(ids, employees));
+    }
+
+    @Override
+    public Mono<Employee> update(Employee employee) {
+        LOG.debug("Updating employee [{}]", employee);
+
+        // As in EmployeeServiceImpl, an update without a version applies to the current one
+        Mono<Employee> versioned = employee.getVersion() != null ? Mono.just(employee)
+                : read(employee.getEmployeeId()).map(current -> {
+                    employee.setVersion(current.getVersion());
+                    return employee;
+                });
+
+        return employeeWriteLocks.writeReactive(employee.getEmployeeId(), () -> versioned
+                .flatMap(versionedEmployee -> updateIndex(() -> orgGraphIndex.checkForCycles(versionedEmployee))
+                        .thenReturn(versionedEmployee))
+                .flatMap(employeeRepository::save)
+                .flatMap(updated -> updateIndex(() -> orgGraphIndex.update(updated)).thenReturn(updated)));
+    }
+
+    @Override
+    public Mono<Long> getReportingStructureVersion(String id) {
+        LOG.debug("Reading reporting structure version for employee with id [{}]", id);
+
+        return readIndex(() -> orgGraphIndex.getSubtreeVersion(id));
+    }
+
+    @Override
+    public Mono<ReportingStructure> generateReportingStructure(String id) {
+        LOG.debug("Reading employee with id [{}]", id);
+
+        return read(id)
+                .flatMap(employee -> {
+                    Traversal traversal = new Traversal();
+                    List<Path> reports = new ArrayList<>();
+                    BatchedReportingStructureTraversal.collectReports(employee, new Path(id, null), reports);
+                    return traversal.walk(reports).then(Mono.fromCallable(() -> {
+                        LOG.debug("Counted [{}] reports for employee [{}] across [{}] levels using [{}] queries",
+                                traversal.numberOfReports, id, traversal.depth, traversal.queryCount);
+                        reportsCounted.record(traversal.numberOfReports);
+                        traversalDepth.record(traversal.depth);
+                        traversalQueries.record(traversal.queryCount);
+
+                        ReportingStructure reportingStructure = new ReportingStructure();
+                        reportingStructure.setEmployee(id);
+                        reportingStructure.setNumberOfReports(traversal.numberOfReports);
+                        return reportingStructure;
+                    }));
+                });
+    }
+
+    @Override
+    public Mono<Compensation> createCompensation(Compensation compensation) {
+        LOG.debug("Creating compensation [{}]", compensation);
+        String employeeId = compensation.getEmployee();
+
+        // As in EmployeeServiceImpl, an entry without a date takes effect now
+        if (compensation.getEffectiveDate() == null) {
+            compensation.setEffectiveDate(new Date());
+        }
+
+        // Compensation is append-only; each create adds an entry to the employee's history
+        return read(employeeId)
+                .then(compensationRepository.insert(compensation))
+                .flatMap(createdCompensation -> updateIndex(() -> orgGraphIndex.updateSalary(employeeId,
+                        createdCompensation.getSalary(), createdCompensation.getEffectiveDate()))
+                        .thenReturn(createdCompensation));
+    }
+
+    @Override
+    public Mono<Compensation> getCompensation(String id) {
+        LOG.debug("Reading compensation with id [{}]", id);
+
+        return compensationRepository.findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(id, new Date())
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeId: " + id)));
+    }
+
+    @Override
+    public Mono<Compensation> getCompensation(String id, Date asOf) {
+        LOG.debug("Reading compensation with id [{}] as of [{}]", id, asOf);
+
+        return compensationRepository.findFirstByEmployeeAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(id, asOf)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("No compensation for employeeId " + id + " as of " + asOf)));
+    }
+
+    @Override
+    public Flux<Compensation> getCompensationHistory(String id, Date from, Date to) {
+        LOG.debug("Reading compensation history with id [{}] from [{}] to [{}]", id, from, to);
+
+        return compensationRepository.findHistory(id, from, to);
+    }
+
+    private static Mono<Void> updateIndex(Runnable update) {
+        return Mono.<Void>fromRunnable(update).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static <T> Mono<T> readIndex(Callable<T> read) {
+        return Mono.fromCallable(read).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static <T> MultiGetResult<T> toMultiGetResult(List<String> ids, Map<String, T> resultsById) {
+        MultiGetResult<T> result = new MultiGetResult<>();
+
+        for (String id : new LinkedHashSet<>(ids)) {
+            T found = resultsById.get(id);
+            if (found != null) {
+                result.getFound().add(found);
+            } else {
+                result.getNotFound().add(id);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The state of one reporting structure walk. A report shared by two managers counts under each, as in the
+     * batched traversal, and one on its own path is not followed. flatMap delivers the chunks of a level one at a
+     * time, so the state needs no locking.
+     */
+    private class Traversal {
+        private int numberOfReports;
+        private int depth;
+        private int queryCount = 1;
+
+        Mono<Void> walk(List<Path> level) {
+            if (level.isEmpty()) {
+                return Mono.empty();
+            }
+
+            depth++;
+            numberOfReports += level.size();
+            List<String> ids = level.stream().map(Path::getEmployeeId).distinct().collect(Collectors.toList());
+            List<List<String>> chunks = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+            }
+            queryCount += chunks.size();
+
+            return Flux.fromIterable(chunks)
+                    .flatMap(chunk -> employeeRepository.findByEmployeeIdIn(chunk).collectList()
+                            .doOnNext(found -> checkAllFound(chunk, found)), concurrency)
+                    .flatMapIterable(Function.identity())
+                    .collectMap(Employee::getEmployeeId)
+                    .flatMap(employees -> {
+                        List<Path> nextLevel = new ArrayList<>();
+                        for (Path path : level) {
+                            BatchedReportingStructureTraversal.collectReports(employees.get(path.getEmployeeId()),
+                                    path, nextLevel);
+                        }
+                        return walk(nextLevel);
+                    });
+        }
+
+        private void checkAllFound(List<String> requestedIds, List<Employee> foundEmployees) {
+            if (foundEmployees.size() < requestedIds.size()) {
+                Set<String> missing = new HashSet<>(requestedIds);
+                foundEmployees.forEach(employee -> missing.remove(employee.getEmployeeId()));
+                throw new RuntimeException("Invalid employeeId: " + String.join(", ", missing));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The original traversal: one repository lookup per report, recursing once per level of the tree.
+ */
+@Component("recursive")
+public class RecursiveReportingStructureTraversal implements ReportingStructureTraversal {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Override
+    public TraversalResult traverse(String employeeId) {
+        Employee employee = employeeRepository.findByEmployeeId(employeeId);
+
+        if (employee == null) {
+            throw new RuntimeException("Invalid employeeId: " + employeeId);
+        }
+
+        int[] stats = new int[] {0, 1};
+        int numberOfReports = findNumberOfDirectReports(employee, 0, stats);
+        return new TraversalResult(numberOfReports, stats[0], stats[1]);
+    }
+
+    // stats[0] tracks the deepest level reached, stats[1] the number of queries issued.
+    private int findNumberOfDirectReports(Employee employee, int depth, int[] stats) {
+        // The termination condition for the recursion.
+        if(employee.getDirectReports() == null || employee.getDirectReports().isEmpty()) {
+            return 0;
+        }
+
+        stats[0] = Math.max(stats[0], depth + 1);
+        int numberOfDirectReports = employee.getDirectReports().size();
+
+        for(Employee directReport : employee.getDirectReports()) {
+            Employee directEmployee = employeeRepository.findByEmployeeId(directReport.getEmployeeId());
+            stats[1]++;
+
+            if (directEmployee == null) {
+                throw new RuntimeException("Invalid employeeId: " + directReport.getEmployeeId());
+            }
+
+            // Using recursion to get the nested number of direct reports
+            numberOfDirectReports += findNumberOfDirectReports(directEmployee, depth + 1, stats);
+        }
+
+        return numberOfDirectReports;
+    }
+}
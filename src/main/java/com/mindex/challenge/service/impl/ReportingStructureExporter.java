@@ -0,0 +1,81 @@
+package com.mindex.challenge.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.index.OrgGraphIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the reporting structure of every employee as NDJSON lines or a single JSON array. The counts come from the
+ * OrgGraphIndex, which computes all of them in one post-order pass over one read of the employee collection and keeps
+ * them current as employees change, so an export reads no documents and recounts nothing.
+ *
+ * The index is copied out "challenge.reporting-structure.export.page-size" employees at a time, and each page is
+ * written and flushed before the next is copied. Output starts straight away, memory holds one page whatever the size
+ * of the org, and the index's read lock is never held while writing to the client.
+ */
+@Component
+public class ReportingStructureExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportingStructureExporter.class);
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${challenge.reporting-structure.export.page-size:10000}")
+    private int pageSize;
+
+    public void exportNdjson(OutputStream output) throws IOException {
+        export(output, false);
+    }
+
+    public void exportJsonArray(OutputStream output) throws IOException {
+        export(output, true);
+    }
+
+    private void export(OutputStream output, boolean array) throws IOException {
+        List<ReportingStructure> page = new ArrayList<>(pageSize);
+        int position = 0;
+        int count = 0;
+
+        if (array) {
+            output.write('[');
+        }
+
+        while (position >= 0) {
+            page.clear();
+            position = orgGraphIndex.getReportingStructures(position, pageSize, page);
+
+            for (ReportingStructure reportingStructure : page) {
+                if (array && count > 0) {
+                    output.write(',');
+                }
+                output.write(objectMapper.writeValueAsBytes(reportingStructure));
+                if (!array) {
+                    output.write('\n');
+                }
+                count++;
+            }
+            output.flush();
+        }
+
+        if (array) {
+            output.write(']');
+            output.flush();
+        }
+
+        LOG.debug("Exported [{}] reporting structures", count);
+    }
+}
@@ -0,0 +1,10 @@
+package com.mindex.challenge.service.impl;
+
+/**
+ * Strategy for counting every report underneath an employee. Implementations are registered as beans, and the bean
+ * name is what the "challenge.reporting-structure.traversal" property selects. Implementations throw for an unknown
+ * employeeId.
+ */
+public interface ReportingStructureTraversal {
+    TraversalResult traverse(String employeeId);
+}
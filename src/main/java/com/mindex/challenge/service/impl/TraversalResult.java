@@ -0,0 +1,29 @@
+package com.mindex.challenge.service.impl;
+
+/**
+ * The outcome of walking an employee's reporting tree, along with how much work the walk took.
+ */
+public class TraversalResult {
+
+    private final int numberOfReports;
+    private final int depth;
+    private final int queryCount;
+
+    public TraversalResult(int numberOfReports, int depth, int queryCount) {
+        this.numberOfReports = numberOfReports;
+        this.depth = depth;
+        this.queryCount = queryCount;
+    }
+
+    public int getNumberOfReports() {
+        return numberOfReports;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+}
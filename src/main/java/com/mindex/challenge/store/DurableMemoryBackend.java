@@ -0,0 +1,513 @@
+package com.mindex.challenge.store;
+
+import de.bwaldvogel.mongo.MongoCollection;
+import de.bwaldvogel.mongo.MongoDatabase;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.bwaldvogel.mongo.bson.Document;
+import de.bwaldvogel.mongo.exception.MongoServerException;
+import de.bwaldvogel.mongo.wire.bson.BsonDecoder;
+import de.bwaldvogel.mongo.wire.bson.BsonEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A MemoryBackend that survives restarts. Every write command is appended to a write log (a sequence of BSON records)
+ * before it is applied, and the whole database is periodically written out as a compact BSON snapshot, after which the
+ * log starts over. On startup the snapshot is loaded, and the log written since is replayed on top of it. Both are
+ * memory-mapped a window at a time, so neither is limited to the 2 GB a single mapping can hold.
+ *
+ * Snapshots and logs are numbered by generation. A snapshot of generation n holds every write logged in generations up
+ * to n, so recovery replays only the logs after it; a crash part-way through a snapshot leaves the previous snapshot
+ * and its logs in place. A record torn by a crash in the middle of an append is dropped when the log is replayed.
+ *
+ * Writes are logged and applied one at a time, so that replaying the log applies them in the same order. A write whose
+ * append fails is not applied; one that fails once applied fails the same way when it is replayed. A snapshot holds
+ * writes back only while it copies the database in memory and starts the next log; the copy is written out while
+ * writes go on, at the cost of holding a second copy of the data until it is. Reads are never blocked.
+ * With fsync off, an appended write survives the process crashing but not the machine losing power.
+ */
+public class DurableMemoryBackend extends MemoryBackend {
+    private static final Logger LOG = LoggerFactory.getLogger(DurableMemoryBackend.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.bson";
+    private static final Pattern LOG_FILE = Pattern.compile("log-(\\d+)\\.bson");
+    private static final int SNAPSHOT_BATCH_SIZE = 1000;
+    private static final int READ_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final Set<String> WRITE_COMMANDS = new HashSet<>(Arrays.asList(
+            "insert", "update", "delete", "findandmodify", "create", "createindexes", "drop", "dropindexes",
+            "dropdatabase", "renamecollection"));
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int readWindowSize;
+    private final Lock writeLock = new ReentrantLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    private final Channel replayChannel = new EmbeddedChannel();
+    private final ScheduledExecutorService snapshotScheduler;
+
+    private long generation;
+    private FileChannel log;
+    private volatile long loggedWrites;
+
+    /**
+     * @param snapshotIntervalSeconds how often to snapshot if anything was written since the last one; 0 snapshots
+     *                                only on close
+     */
+    public DurableMemoryBackend(Path directory, long snapshotIntervalSeconds, boolean fsync) {
+        this(directory, snapshotIntervalSeconds, fsync, READ_WINDOW_SIZE);
+    }
+
+    DurableMemoryBackend(Path directory, long snapshotIntervalSeconds, boolean fsync, int readWindowSize) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.readWindowSize = readWindowSize;
+
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the database in " + directory, e);
+        }
+
+        if (snapshotIntervalSeconds > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mongo-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfChanged,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+    }
+
+    @Override
+    public Document handleCommand(Channel channel, String database, String command, Document query) {
+        if (!WRITE_COMMANDS.contains(command.toLowerCase())) {
+            return super.handleCommand(channel, database, command, query);
+        }
+
+        writeLock.lock();
+        try {
+            append(new Document("db", database).append("command", command).append("query", query));
+            return super.handleCommand(channel, database, command, query);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void dropDatabase(String database) {
+        handleCommand(replayChannel, database, "dropDatabase", new Document("dropDatabase", 1));
+    }
+
+    /**
+     * Writes a snapshot of everything written so far and starts a new log.
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            long snapshotGeneration;
+            List<CollectionCopy> collections;
+
+            // The copy and the log it ends agree because no write can come between them
+            writeLock.lock();
+            try {
+                collections = copyCollections();
+                snapshotGeneration = generation;
+                openLog(generation + 1);
+                loggedWrites = 0;
+            } finally {
+                writeLock.unlock();
+            }
+            long copied = System.currentTimeMillis();
+
+            long documents = writeSnapshot(snapshotGeneration, collections);
+            deleteLogsUpTo(snapshotGeneration);
+            LOG.info("Wrote snapshot [{}] of [{}] documents in [{}] ms, [{}] ms of it with writes held back",
+                    snapshotGeneration, documents, System.currentTimeMillis() - start, copied - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write a snapshot to " + directory, e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        snapshotIfChanged();
+        try {
+            log.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close the write log in [{}]", directory, e);
+        }
+        super.close();
+    }
+
+    private void snapshotIfChanged() {
+        if (loggedWrites > 0) {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                LOG.error("Snapshot of [{}] failed; writes are still being logged", directory, e);
+            }
+        }
+    }
+
+    private void append(Document record) {
+        ByteBuf buffer = Unpooled.buffer();
+        long end = -1;
+        try {
+            BsonEncoder.encodeDocument(record, buffer);
+            end = log.size();
+            ByteBuffer bytes = buffer.nioBuffer();
+            while (bytes.hasRemaining()) {
+                log.write(bytes);
+            }
+            if (fsync) {
+                log.force(false);
+            }
+            loggedWrites++;
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Could not append to the write log in " + directory, e);
+            // Cut off whatever part of the record made it out, so that the next append does not follow a torn one
+            if (end >= 0) {
+                try {
+                    log.truncate(end);
+                } catch (IOException truncateFailure) {
+                    failure.addSuppressed(truncateFailure);
+                }
+            }
+            throw failure;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        long snapshotGeneration = 0;
+        long documents = 0;
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                RecordReader reader = new RecordReader(channel, readWindowSize);
+                Document header = reader.next();
+                if (header == null) {
+                    throw new IOException("The snapshot " + snapshot + " has no header");
+                }
+                snapshotGeneration = ((Number) header.get("generation")).longValue();
+
+                for (Document record = reader.next(); record != null; record = reader.next()) {
+                    String database = (String) record.get("db");
+                    String collection = (String) record.get("collection");
+
+                    if (record.containsKey("indexes")) {
+                        createCollection(database, collection, (List<?>) record.get("indexes"));
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        List<Document> batch = (List<Document>) record.get("documents");
+                        resolveDatabase(database).resolveCollection(collection, true).insertDocuments(batch);
+                        documents += batch.size();
+                    }
+                }
+
+                // The snapshot is only ever moved into place whole, so a torn one has been damaged since
+                if (reader.isTorn()) {
+                    throw new IOException("The snapshot " + snapshot + " ends in a torn record");
+                }
+            }
+        }
+
+        long replayed = 0;
+        long lastGeneration = snapshotGeneration;
+        for (Map.Entry<Long, Path> logFile : listLogs().entrySet()) {
+            if (logFile.getKey() > snapshotGeneration) {
+                replayed += replay(logFile.getValue());
+                lastGeneration = logFile.getKey();
+            }
+        }
+
+        openLog(lastGeneration + 1);
+        deleteLogsUpTo(snapshotGeneration);
+        LOG.info("Recovered [{}] documents from snapshot [{}] and replayed [{}] logged writes from [{}] in [{}] ms",
+                documents, snapshotGeneration, replayed, directory, System.currentTimeMillis() - start);
+    }
+
+    private long replay(Path logFile) throws IOException {
+        long replayed = 0;
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(channel, readWindowSize);
+
+            for (Document record = reader.next(); record != null; record = reader.next()) {
+                try {
+                    super.handleCommand(replayChannel, (String) record.get("db"), (String) record.get("command"),
+                            (Document) record.get("query"));
+                } catch (MongoServerException e) {
+                    LOG.debug("Replayed a write that failed when it was made", e);
+                }
+                replayed++;
+            }
+
+            if (reader.isTorn()) {
+                LOG.warn("Dropping a write torn by a crash at the end of [{}]", logFile);
+            }
+        }
+
+        return replayed;
+    }
+
+    // Updates change the stored documents in place, so the snapshot has to be of deep copies taken while writes wait
+    private List<CollectionCopy> copyCollections() {
+        List<CollectionCopy> collections = new ArrayList<>();
+
+        for (String databaseName : listDatabaseNames()) {
+            MongoDatabase database = resolveDatabase(databaseName);
+            for (String collectionName : listCollectionNames(database)) {
+                MongoCollection<?> collection = database.resolveCollection(collectionName, true);
+                List<Document> documents = new ArrayList<>();
+                for (Document document : collection.queryAll()) {
+                    documents.add(document.cloneDeeply());
+                }
+                collections.add(new CollectionCopy(databaseName, collectionName,
+                        listIndexes(database, collectionName), documents));
+            }
+        }
+
+        return collections;
+    }
+
+    private long writeSnapshot(long snapshotGeneration, List<CollectionCopy> collections) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long documents = 0;
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, new Document("generation", snapshotGeneration));
+
+            for (CollectionCopy collection : collections) {
+                write(channel, new Document("db", collection.database).append("collection", collection.name)
+                        .append("indexes", collection.indexes));
+
+                List<Document> batch = new ArrayList<>(SNAPSHOT_BATCH_SIZE);
+
+                for (Document document : collection.documents) {
+                    batch.add(document);
+                    if (batch.size() == SNAPSHOT_BATCH_SIZE) {
+                        documents += writeBatch(channel, collection.database, collection.name, batch);
+                    }
+                }
+                documents += writeBatch(channel, collection.database, collection.name, batch);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return documents;
+    }
+
+    private long writeBatch(FileChannel channel, String database, String collection, List<Document> batch)
+            throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        write(channel, new Document("db", database).append("collection", collection).append("documents", batch));
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    private static void write(FileChannel channel, Document document) throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            BsonEncoder.encodeDocument(document, buffer);
+            ByteBuffer bytes = buffer.nioBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    // Each collection in a snapshot starts with a record of its indexes, so that it is recreated before its documents
+    private void createCollection(String database, String collection, List<?> indexes) {
+        super.handleCommand(replayChannel, database, "create", new Document("create", collection));
+
+        List<Document> secondaryIndexes = new ArrayList<>();
+        for (Object index : indexes) {
+            if (!"_id_".equals(((Document) index).get("name"))) {
+                secondaryIndexes.add((Document) index);
+            }
+        }
+        if (!secondaryIndexes.isEmpty()) {
+            super.handleCommand(replayChannel, database, "createIndexes",
+                    new Document("createIndexes", collection).append("indexes", secondaryIndexes));
+        }
+    }
+
+    private List<?> listIndexes(MongoDatabase database, String collection) {
+        Document response = database.handleCommand(replayChannel, "listIndexes", new Document("listIndexes", collection));
+        return (List<?>) ((Document) response.get("cursor")).get("firstBatch");
+    }
+
+    private List<String> listCollectionNames(MongoDatabase database) {
+        Document response = database.handleCommand(replayChannel, "listCollections", new Document("listCollections", 1));
+        @SuppressWarnings("unchecked")
+        List<Document> collections = (List<Document>) ((Document) response.get("cursor")).get("firstBatch");
+
+        List<String> names = new ArrayList<>();
+        for (Document collection : collections) {
+            String name = (String) collection.get("name");
+            if (!name.startsWith("system.")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private void openLog(long logGeneration) throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        generation = logGeneration;
+        log = FileChannel.open(directory.resolve("log-" + logGeneration + ".bson"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void deleteLogsUpTo(long lastGeneration) throws IOException {
+        for (Map.Entry<Long, Path> logFile : listLogs().entrySet()) {
+            if (logFile.getKey() <= lastGeneration) {
+                Files.delete(logFile.getValue());
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> listLogs() throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = LOG_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    logs.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return logs;
+    }
+
+    private static class CollectionCopy {
+        private final String database;
+        private final String name;
+        private final List<?> indexes;
+        private final List<Document> documents;
+
+        CollectionCopy(String database, String name, List<?> indexes, List<Document> documents) {
+            this.database = database;
+            this.name = name;
+            this.indexes = indexes;
+            this.documents = documents;
+        }
+    }
+
+    /**
+     * Reads the BSON records in a file in order, mapping a window of it at a time. A window starts at the record being
+     * read and is widened to hold that record whole, so no record is ever split across two mappings.
+     */
+    private static class RecordReader {
+        private final FileChannel channel;
+        private final int windowSize;
+        private final long size;
+
+        private long windowStart;
+        private ByteBuf window = Unpooled.EMPTY_BUFFER;
+        private boolean torn;
+
+        RecordReader(FileChannel channel, int windowSize) throws IOException {
+            this.channel = channel;
+            this.windowSize = windowSize;
+            this.size = channel.size();
+        }
+
+        /**
+         * @return the next record, or null at the end of the file or at a record cut short by its end
+         */
+        Document next() throws IOException {
+            long offset = windowStart + window.readerIndex();
+            long remaining = size - offset;
+            if (remaining == 0) {
+                return null;
+            }
+
+            if (remaining < 4) {
+                torn = true;
+                return null;
+            }
+            if (window.readableBytes() < 4) {
+                map(offset, 4);
+            }
+
+            int length = window.getIntLE(window.readerIndex());
+            if (length < 4 || length > remaining) {
+                torn = true;
+                return null;
+            }
+            if (window.readableBytes() < length) {
+                map(offset, length);
+            }
+
+            return BsonDecoder.decodeBson(window);
+        }
+
+        boolean isTorn() {
+            return torn;
+        }
+
+        private void map(long offset, int length) throws IOException {
+            long mappedSize = Math.min(size - offset, Math.max(windowSize, length));
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, mappedSize);
+            windowStart = offset;
+            window = Unpooled.wrappedBuffer(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+}
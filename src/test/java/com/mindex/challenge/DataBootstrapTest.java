@@ -1,10 +1,14 @@
 package com.mindex.challenge;
 
+import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
 import com.mindex.challenge.data.Employee;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import static org.junit.Assert.assertEquals;
@@ -12,12 +16,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "challenge.bootstrap.compensation-location=classpath:/compensation_seed.json")
 public class DataBootstrapTest {
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private CompensationRepository compensationRepository;
+
+    @Autowired
+    private DataBootstrap dataBootstrap;
+
     @Test
     public void test() {
         Employee employee = employeeRepository.findByEmployeeId("16a596ae-edd3-4847-99fe-c4518e82c86f");
@@ -27,4 +37,20 @@ public class DataBootstrapTest {
         assertEquals("Development Manager", employee.getPosition());
         assertEquals("Engineering", employee.getDepartment());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHealthAfterLoad() {
+        Health health = dataBootstrap.health();
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("loaded", health.getDetails().get("status"));
+        assertEquals(5L, health.getDetails().get("employees"));
+        assertEquals(2L, health.getDetails().get("compensation"));
+    }
+
+    @Test
+    public void testCompensationSeed() {
+        Compensation compensation = compensationRepository.findCurrentByEmployee("16a596ae-edd3-4847-99fe-c4518e82c86f");
+        assertNotNull(compensation);
+        assertEquals(135000, compensation.getSalary(), 0.01);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mindex.challenge.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AimdLimiterTest {
+
+    @Test
+    public void testLimitFollowsLatency() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 6, 0.5, 100, 0, TimeUnit.MILLISECONDS);
+
+        // Fast requests with the limit in use raise it by a fraction each, about one per limit's worth
+        fill(limiter, 4);
+        for (int j = 0; j < 4; j++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            fill(limiter, limiter.getLimit());
+            for (int j = limiter.getInFlight(); j > 0; j--) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        assertEquals(6, limiter.getLimit());
+
+        // Fast requests on an idle route leave it where it is
+        assertTrue(limiter.acquire());
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(6, limiter.getLimit());
+
+        // A burst of slow ones cuts it once, and again only after a limit's worth of completions
+        fill(limiter, 6);
+        for (int i = 0; i < 3; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertEquals(3, limiter.getLimit());
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, limiter.getLimit());
+
+        // Never below the minimum
+        for (int i = 0; i < 2; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testWaitsForASlot() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(1, 1, 1, 0.5, 100, 500, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.acquire());
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        });
+        releaser.start();
+        assertTrue(limiter.acquire());
+        releaser.join();
+
+        // With the slot still held, a second request gives up once the wait is over
+        long start = System.nanoTime();
+        assertFalse(limiter.acquire());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    private static void fill(AimdLimiter limiter, int requests) throws InterruptedException {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(limiter.acquire());
+        }
+    }
+}
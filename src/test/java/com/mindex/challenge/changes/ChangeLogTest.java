@@ -0,0 +1,123 @@
+package com.mindex.challenge.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.ChangeEvent;
+import com.mindex.challenge.data.ChangeEvent.Entity;
+import com.mindex.challenge.data.ChangeEvent.Operation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRingKeepsNewestEvents() throws Exception {
+        ChangeLog changeLog = changeLog(4, "");
+        for (int i = 1; i <= 6; i++) {
+            changeLog.publish(event("employee-" + i));
+        }
+
+        List<ChangeEvent> events = changeLog.read(3, 10);
+        assertEquals(3, events.size());
+        assertEquals(4, events.get(0).getSequence());
+        assertEquals("employee-6", events.get(2).getEmployeeId());
+        assertEquals(1, changeLog.read(2, 1).size());
+        assertTrue(changeLog.read(6, 10).isEmpty());
+
+        // Event 2 has been overwritten, and nothing has been numbered 7 yet
+        assertNull(changeLog.read(1, 10));
+        assertNull(changeLog.read(7, 10));
+        changeLog.close();
+    }
+
+    @Test
+    public void testSpillReachesPastRingAndRestarts() throws Exception {
+        String directory = temporaryFolder.getRoot().getPath();
+        ChangeLog changeLog = changeLog(4, directory);
+        for (int i = 1; i <= 12; i++) {
+            changeLog.publish(event("employee-" + i));
+        }
+        changeLog.close();
+
+        // Segments of 5 events, of which the newest 2 are kept: events 6 to 12
+        ChangeLog restarted = changeLog(4, directory);
+        assertEquals(12, restarted.getLastSequence());
+        assertNull(restarted.read(4, 10));
+
+        List<ChangeEvent> events = restarted.read(5, 3);
+        assertEquals(3, events.size());
+        assertEquals("employee-6", events.get(0).getEmployeeId());
+        assertEquals(7, restarted.read(5, 10).size());
+
+        restarted.publish(event("employee-13"));
+        assertEquals(13, restarted.read(12, 10).get(0).getSequence());
+        restarted.close();
+    }
+
+    @Test
+    public void testBlockedSubscriberHoldsUpNoOther() throws Exception {
+        String directory = temporaryFolder.getRoot().getPath();
+        ChangeLog changeLog = changeLog(4, directory);
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger blockedRuns = new AtomicInteger();
+        changeLog.subscribe(() -> {
+            blockedRuns.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CountDownLatch delivered = new CountDownLatch(1);
+        changeLog.subscribe(() -> {
+            List<ChangeEvent> events = changeLog.read(5, 10);
+            if (events != null && !events.isEmpty()) {
+                delivered.countDown();
+            }
+        });
+
+        for (int i = 1; i <= 6; i++) {
+            changeLog.publish(event("employee-" + i));
+        }
+
+        // Event 1 is out of the ring of 4, so reading it means the spill has gone on too
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals("employee-1", changeLog.read(0, 1).get(0).getEmployeeId());
+
+        // The blocked subscriber runs again once released, but never alongside itself
+        assertEquals(1, blockedRuns.get());
+        release.countDown();
+        changeLog.close();
+    }
+
+    private ChangeLog changeLog(int capacity, String spillDirectory) {
+        ChangeLog changeLog = new ChangeLog();
+        ReflectionTestUtils.setField(changeLog, "capacity", capacity);
+        ReflectionTestUtils.setField(changeLog, "spillDirectory", spillDirectory);
+        ReflectionTestUtils.setField(changeLog, "segmentSize", 5);
+        ReflectionTestUtils.setField(changeLog, "maxSegments", 2);
+        ReflectionTestUtils.setField(changeLog, "deliveryThreads", 2);
+        ReflectionTestUtils.setField(changeLog, "objectMapper", new ObjectMapper());
+        changeLog.init();
+        return changeLog;
+    }
+
+    private static ChangeEvent event(String employeeId) {
+        return new ChangeEvent(Entity.EMPLOYEE, Operation.UPDATED, employeeId, null, 1L);
+    }
+}
@@ -0,0 +1,59 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EmployeeIdMigrationTest {
+
+    @Autowired
+    private EmployeeIdMigration employeeIdMigration;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    public void testMigrateLegacyDocuments() {
+        String employeeId = UUID.randomUUID().toString();
+        String reportId = UUID.randomUUID().toString();
+        MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+
+        // Two copies of the same employee, as the old update path would leave behind
+        collection.insertOne(new Document("_id", new ObjectId())
+                .append("employeeId", employeeId)
+                .append("firstName", "Stuart")
+                .append("position", "Bassist"));
+        collection.insertOne(new Document("_id", new ObjectId())
+                .append("employeeId", employeeId)
+                .append("firstName", "Stuart")
+                .append("position", "Painter")
+                .append("directReports", Arrays.asList(new Document("employeeId", reportId))));
+
+        employeeIdMigration.migrate();
+
+        assertEquals(1, collection.countDocuments(new Document("firstName", "Stuart")));
+        Employee employee = employeeRepository.findByEmployeeId(employeeId);
+        assertNotNull(employee);
+        assertEquals("Painter", employee.getPosition());
+        assertEquals(reportId, employee.getDirectReports().get(0).getEmployeeId());
+    }
+}
@@ -0,0 +1,123 @@
+package com.mindex.challenge.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mindex.challenge.config.CacheConfig;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class RepositoryCacheTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CompensationRepository compensationRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    public void testRepeatedLookupIsServedFromCache() {
+        String employeeId = "b7839309-3348-463b-a7e3-5de1c168beb3";
+        long hitsBefore = nativeCache(CacheConfig.EMPLOYEES).stats().hitCount();
+
+        Employee first = employeeRepository.findByEmployeeId(employeeId);
+        Employee second = employeeRepository.findByEmployeeId(employeeId);
+
+        assertEquals(first.getFirstName(), second.getFirstName());
+        assertTrue(nativeCache(CacheConfig.EMPLOYEES).stats().hitCount() > hitsBefore);
+    }
+
+    @Test
+    public void testLookupReturnsCopyOfCachedEmployee() {
+        Employee report = new Employee();
+        report.setEmployeeId(UUID.randomUUID().toString());
+        Employee employee = new Employee();
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        employee.setFirstName("John");
+        employee.setDirectReports(new ArrayList<>(Collections.singletonList(report)));
+        employeeRepository.insert(employee);
+
+        Employee first = employeeRepository.findByEmployeeId(employee.getEmployeeId());
+        first.setFirstName("Changed");
+        first.getDirectReports().clear();
+
+        Employee second = employeeRepository.findByEmployeeId(employee.getEmployeeId());
+        assertNotSame(first, second);
+        assertEquals("John", second.getFirstName());
+        assertEquals(1, second.getDirectReports().size());
+    }
+
+    @Test
+    public void testBatchInsertEvictsOnlyItsKeys() {
+        String cachedId = "b7839309-3348-463b-a7e3-5de1c168beb3";
+        employeeRepository.findByEmployeeId(cachedId);
+
+        Employee first = new Employee();
+        first.setEmployeeId(UUID.randomUUID().toString());
+        Employee second = new Employee();
+        second.setEmployeeId(UUID.randomUUID().toString());
+        assertNull(employeeRepository.findByEmployeeId(first.getEmployeeId()));
+        assertNull(employeeRepository.findByEmployeeId(second.getEmployeeId()));
+
+        employeeRepository.insert(Arrays.asList(first, second));
+
+        assertNotNull(employeeRepository.findByEmployeeId(first.getEmployeeId()));
+        assertNotNull(employeeRepository.findByEmployeeId(second.getEmployeeId()));
+        assertNotNull(nativeCache(CacheConfig.EMPLOYEES).getIfPresent(cachedId));
+    }
+
+    @Test
+    public void testInsertEvictsCachedMiss() {
+        String employeeId = UUID.randomUUID().toString();
+        assertNull(employeeRepository.findByEmployeeId(employeeId));
+
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        employee.setFirstName("Stuart");
+        employeeRepository.insert(employee);
+
+        Employee readEmployee = employeeRepository.findByEmployeeId(employeeId);
+        assertNotNull(readEmployee);
+        assertEquals("Stuart", readEmployee.getFirstName());
+    }
+
+    @Test
+    public void testCompensationInsertEvictsCachedMiss() {
+        String employeeId = UUID.randomUUID().toString();
+        assertNull(compensationRepository.findCurrentByEmployee(employeeId));
+
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employeeId);
+        compensation.setSalary(50000);
+        compensation.setEffectiveDate(new Date());
+        compensationRepository.insert(compensation);
+
+        assertNotNull(compensationRepository.findCurrentByEmployee(employeeId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(String name) {
+        return (Cache<Object, Object>) cacheManager.getCache(name).getNativeCache();
+    }
+}
@@ -0,0 +1,344 @@
+package com.mindex.challenge.index;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrgGraphIndexTest {
+
+    private OrgGraphIndex orgGraphIndex;
+
+    @Before
+    public void setup() {
+        orgGraphIndex = new OrgGraphIndex();
+    }
+
+    @Test
+    public void testUpdatePropagatesToAncestors() {
+        orgGraphIndex.update(employee("top", "middle"));
+        orgGraphIndex.update(employee("middle", "leaf1"));
+        orgGraphIndex.update(employee("leaf1"));
+
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("top"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("middle"));
+
+        orgGraphIndex.update(employee("middle", "leaf1", "leaf2"));
+        orgGraphIndex.update(employee("leaf1", "leaf3"));
+
+        assertEquals(Integer.valueOf(4), orgGraphIndex.getNumberOfReports("top"));
+        assertEquals(Integer.valueOf(3), orgGraphIndex.getNumberOfReports("middle"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("leaf1"));
+
+        orgGraphIndex.update(employee("middle", "leaf2"));
+
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("top"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("middle"));
+    }
+
+    @Test
+    public void testSubtreeVersionFollowsStructure() {
+        orgGraphIndex.update(employee("top", "middle", "other"));
+        orgGraphIndex.update(employee("middle", "leaf"));
+        orgGraphIndex.update(employee("other"));
+        long top = orgGraphIndex.getSubtreeVersion("top");
+        long middle = orgGraphIndex.getSubtreeVersion("middle");
+        long other = orgGraphIndex.getSubtreeVersion("other");
+
+        // Saving the same reports again changes nothing
+        orgGraphIndex.update(employee("middle", "leaf"));
+        assertEquals(Long.valueOf(middle), orgGraphIndex.getSubtreeVersion("middle"));
+
+        orgGraphIndex.update(employee("middle", "leaf", "newHire"));
+        assertTrue(orgGraphIndex.getSubtreeVersion("middle") > middle);
+        assertTrue(orgGraphIndex.getSubtreeVersion("top") > top);
+        assertEquals(Long.valueOf(other), orgGraphIndex.getSubtreeVersion("other"));
+        assertNull(orgGraphIndex.getSubtreeVersion("newHire"));
+    }
+
+    @Test
+    public void testUnknownEmployee() {
+        orgGraphIndex.update(employee("manager", "placeholder"));
+
+        assertNull(orgGraphIndex.getNumberOfReports("nobody"));
+        assertNull(orgGraphIndex.getNumberOfReports("placeholder"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("manager"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCheckForCycles() {
+        orgGraphIndex.update(employee("top", "middle"));
+        orgGraphIndex.update(employee("middle", "bottom"));
+
+        orgGraphIndex.checkForCycles(employee("bottom", "top"));
+    }
+
+    @Test
+    public void testCycleIsNotLinked() {
+        orgGraphIndex.update(employee("top", "bottom"));
+        orgGraphIndex.update(employee("bottom", "top"));
+
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("top"));
+        assertEquals(Integer.valueOf(0), orgGraphIndex.getNumberOfReports("bottom"));
+    }
+
+    @Test
+    public void testCountReportsOnDeepChain() {
+        int depth = 100000;
+        // Built bottom-up so each update only touches the node being linked.
+        for (int i = depth; i >= 0; i--) {
+            orgGraphIndex.update(i == depth ? employee("chain" + i) : employee("chain" + i, "chain" + (i + 1)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(Integer.valueOf(depth), orgGraphIndex.countReports("chain0", pool, 16));
+            assertEquals(orgGraphIndex.getNumberOfReports("chain0"), orgGraphIndex.countReports("chain0", pool, 16));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountReportsOnWideOrg() {
+        int fanOut = 300;
+        String[] managerIds = new String[fanOut];
+        for (int m = 0; m < fanOut; m++) {
+            String[] reportIds = new String[fanOut];
+            for (int r = 0; r < fanOut; r++) {
+                reportIds[r] = "report" + m + "-" + r;
+                orgGraphIndex.update(employee(reportIds[r]));
+            }
+            managerIds[m] = "manager" + m;
+            orgGraphIndex.update(employee(managerIds[m], reportIds));
+        }
+        orgGraphIndex.update(employee("ceo", managerIds));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(Integer.valueOf(fanOut + fanOut * fanOut), orgGraphIndex.countReports("ceo", pool, 64));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountReportsCountsSharedReportsPerPath() {
+        orgGraphIndex.update(employee("leaf"));
+        orgGraphIndex.update(employee("shared", "leaf"));
+        orgGraphIndex.update(employee("left", "shared"));
+        orgGraphIndex.update(employee("right", "shared", "other"));
+        orgGraphIndex.update(employee("top", "left", "right"));
+
+        // left, right, other, and shared and leaf once under each of left and right
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int splitThreshold = 1; splitThreshold <= 8; splitThreshold++) {
+                assertEquals(Integer.valueOf(7), orgGraphIndex.countReports("top", pool, splitThreshold));
+            }
+            assertEquals(orgGraphIndex.getNumberOfReports("top"), orgGraphIndex.countReports("top", pool, 2));
+            assertNull(orgGraphIndex.countReports("nobody", pool, 2));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEulerTourQueries() {
+        orgGraphIndex.update(employee("top", "left", "right"));
+        orgGraphIndex.update(employee("left", "leaf1", "leaf2"));
+        orgGraphIndex.update(employee("right", "leaf3"));
+        for (String leaf : Arrays.asList("leaf1", "leaf2", "leaf3")) {
+            orgGraphIndex.update(employee(leaf));
+        }
+
+        assertTrue(orgGraphIndex.isUnder("leaf2", "top"));
+        assertTrue(orgGraphIndex.isUnder("leaf2", "left"));
+        assertFalse(orgGraphIndex.isUnder("leaf2", "right"));
+        assertFalse(orgGraphIndex.isUnder("top", "leaf2"));
+        assertFalse(orgGraphIndex.isUnder("left", "left"));
+        assertNull(orgGraphIndex.isUnder("leaf2", "nobody"));
+
+        assertEquals(new HashSet<>(Arrays.asList("leaf1", "leaf2")),
+                new HashSet<>(orgGraphIndex.getSubordinates("left", 0, 10)));
+        assertEquals(5, orgGraphIndex.getSubordinates("top", 0, 10).size());
+        assertEquals(2, orgGraphIndex.getSubordinates("top", 3, 10).size());
+        assertEquals(1, orgGraphIndex.getSubordinates("top", 1, 1).size());
+
+        // Moving leaf3 under left invalidates the tour
+        orgGraphIndex.update(employee("right"));
+        orgGraphIndex.update(employee("left", "leaf1", "leaf2", "leaf3"));
+
+        assertTrue(orgGraphIndex.isUnder("leaf3", "left"));
+        assertFalse(orgGraphIndex.isUnder("leaf3", "right"));
+        assertEquals(0, orgGraphIndex.getSubordinates("right", 0, 10).size());
+
+        // An offset past the end of the int range is just past the end of the subtree
+        assertEquals(0, orgGraphIndex.getSubordinates("top", Integer.MAX_VALUE, 10).size());
+        assertEquals(0, orgGraphIndex.getSubordinates("left", Integer.MAX_VALUE, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testUnchangedReportsKeepTourAndPrimaryManager() {
+        orgGraphIndex.update(employee("first", "shared"));
+        orgGraphIndex.update(employee("second", "shared", "other"));
+        orgGraphIndex.update(employee("shared"));
+        assertEquals(Arrays.asList("first"), orgGraphIndex.getManagementChain("shared"));
+        assertTrue(orgGraphIndex.isUnder("shared", "first"));
+        Long version = orgGraphIndex.getSubtreeVersion("first");
+
+        // Saving the managers again with the same reports, as a rename does, neither moves the shared report to the
+        // manager saved last nor throws the tour away. Neither does a new employee without reports.
+        orgGraphIndex.update(employee("second", "shared", "other"));
+        orgGraphIndex.update(employee("first", "shared"));
+        orgGraphIndex.update(employee("newcomer"));
+        assertTrue((Boolean) ReflectionTestUtils.getField(orgGraphIndex, "tourValid"));
+        assertEquals(Arrays.asList("first"), orgGraphIndex.getManagementChain("shared"));
+        assertTrue(orgGraphIndex.isUnder("shared", "first"));
+        assertFalse(orgGraphIndex.isUnder("newcomer", "first"));
+        assertEquals(Arrays.asList("other"), orgGraphIndex.getSubordinates("second", 0, 10));
+        assertEquals(version, orgGraphIndex.getSubtreeVersion("first"));
+
+        // Dropping one of the shared report's managers other than its primary one leaves the tour alone too
+        orgGraphIndex.update(employee("second", "other"));
+        assertTrue((Boolean) ReflectionTestUtils.getField(orgGraphIndex, "tourValid"));
+        assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("second"));
+
+        // Dropping the primary one moves the shared report into the other manager's subtree
+        orgGraphIndex.update(employee("second", "other", "shared"));
+        orgGraphIndex.update(employee("first"));
+        assertEquals(Arrays.asList("second"), orgGraphIndex.getManagementChain("shared"));
+        assertTrue(orgGraphIndex.isUnder("shared", "second"));
+        assertEquals(Integer.valueOf(0), orgGraphIndex.getNumberOfReports("first"));
+        assertEquals(Integer.valueOf(2), orgGraphIndex.getNumberOfReports("second"));
+    }
+
+    @Test
+    public void testCompensationRollup() {
+        orgGraphIndex.update(employee("top", "left", "right"));
+        orgGraphIndex.update(employee("left", "leaf"));
+        orgGraphIndex.update(employee("right"));
+        orgGraphIndex.update(employee("leaf"));
+        orgGraphIndex.updateSalary("top", 300, new Date());
+        orgGraphIndex.updateSalary("left", 200, new Date());
+        orgGraphIndex.updateSalary("leaf", 50, new Date());
+
+        CompensationRollup rollup = orgGraphIndex.getCompensationRollup("top");
+        assertEquals(4, rollup.getHeadcount());
+        assertEquals(3, rollup.getCompensatedCount());
+        assertEquals(550, rollup.getSalarySum(), 0.001);
+        assertEquals(50, rollup.getMinSalary(), 0.001);
+        assertEquals(300, rollup.getMaxSalary(), 0.001);
+        assertNull(orgGraphIndex.getCompensationRollup("right").getMeanSalary());
+
+        // Dropping the lowest earner has to recompute the minimum up the chain
+        orgGraphIndex.update(employee("left"));
+        rollup = orgGraphIndex.getCompensationRollup("top");
+        assertEquals(3, rollup.getHeadcount());
+        assertEquals(500, rollup.getSalarySum(), 0.001);
+        assertEquals(200, rollup.getMinSalary(), 0.001);
+
+        orgGraphIndex.updateSalary("right", 400, new Date());
+        orgGraphIndex.updateSalary("top", 100, new Date());
+        rollup = orgGraphIndex.getCompensationRollup("top");
+        assertEquals(700, rollup.getSalarySum(), 0.001);
+        assertEquals(100, rollup.getMinSalary(), 0.001);
+        assertEquals(400, rollup.getMaxSalary(), 0.001);
+        assertEquals(700.0 / 3, rollup.getMeanSalary(), 0.001);
+    }
+
+    @Test
+    public void testFutureSalaryAppliesOnceDue() throws InterruptedException {
+        orgGraphIndex.update(employee("top", "leaf"));
+        orgGraphIndex.update(employee("leaf"));
+        long now = System.currentTimeMillis();
+        orgGraphIndex.updateSalary("leaf", 100, new Date(now - 1000));
+        orgGraphIndex.updateSalary("leaf", 200, new Date(now + 300));
+        orgGraphIndex.updateSalary("leaf", 300, new Date(now + TimeUnit.DAYS.toMillis(1)));
+
+        assertEquals(100, orgGraphIndex.getCompensationRollup("top").getMaxSalary(), 0.001);
+
+        // An entry back-dated behind the one in effect does not replace it
+        orgGraphIndex.updateSalary("leaf", 50, new Date(now - 2000));
+        assertEquals(100, orgGraphIndex.getCompensationRollup("top").getMaxSalary(), 0.001);
+
+        Thread.sleep(500);
+        CompensationRollup rollup = orgGraphIndex.getCompensationRollup("top");
+        assertEquals(200, rollup.getMaxSalary(), 0.001);
+        assertEquals(200, rollup.getSalarySum(), 0.001);
+        assertEquals(1, rollup.getCompensatedCount());
+    }
+
+    @Test
+    public void testRebuildReadsPastOnePage() {
+        MongoServer server = new MongoServer(new MemoryBackend());
+        try (MongoClient client = MongoClients.create("mongodb:/" + server.bind())) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, "test");
+            ReflectionTestUtils.setField(orgGraphIndex, "mongoTemplate", mongoTemplate);
+
+            // A chain longer than a rebuild page, so every report is only counted if every page is read
+            List<Employee> employees = new ArrayList<>();
+            for (int i = 0; i < 12000; i++) {
+                employees.add(employee("e" + i, "e" + (i + 1)));
+            }
+            mongoTemplate.insertAll(employees);
+
+            // Entered newest first: the rebuild has to pick the current salary by date, not by order
+            mongoTemplate.insert(compensation("e0", 200, 2));
+            mongoTemplate.insert(compensation("e0", 100, 1));
+            mongoTemplate.insert(compensation("e0", 900, -1));
+
+            orgGraphIndex.rebuild();
+
+            assertEquals(Integer.valueOf(12000), orgGraphIndex.getNumberOfReports("e0"));
+            assertEquals(Integer.valueOf(1), orgGraphIndex.getNumberOfReports("e11999"));
+            assertEquals(Double.valueOf(100), orgGraphIndex.getCompensationRollup("e0").getMaxSalary());
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    // Effective the given number of days ago
+    private static Compensation compensation(String employeeId, float salary, int daysAgo) {
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employeeId);
+        compensation.setSalary(salary);
+        compensation.setEffectiveDate(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(daysAgo)));
+        return compensation;
+    }
+
+    private static Employee employee(String employeeId, String... directReportIds) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+
+        List<Employee> directReports = new ArrayList<>();
+        for (String directReportId : directReportIds) {
+            Employee directReport = new Employee();
+            directReport.setEmployeeId(directReportId);
+            directReports.add(directReport);
+        }
+        employee.setDirectReports(directReports);
+
+        return employee;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class BatchedReportingStructureTraversalTest {
+
+    @Autowired
+    private BatchedReportingStructureTraversal traversal;
+
+    @Autowired
+    private RecursiveReportingStructureTraversal recursiveTraversal;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    public void testQueryCountFollowsDepth() {
+        TraversalResult result = traversal.traverse("16a596ae-edd3-4847-99fe-c4518e82c86f");
+
+        assertEquals(4, result.getNumberOfReports());
+        assertEquals(2, result.getDepth());
+        assertEquals(3, result.getQueryCount());
+    }
+
+    @Test
+    public void testWideLevelUsesOneQuery() {
+        List<Employee> reports = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            reports.add(employeeRepository.insert(newEmployee()));
+        }
+        Employee manager = newEmployee();
+        manager.setDirectReports(reports);
+        employeeRepository.insert(manager);
+
+        TraversalResult result = traversal.traverse(manager.getEmployeeId());
+
+        assertEquals(50, result.getNumberOfReports());
+        assertEquals(2, result.getQueryCount());
+    }
+
+    @Test
+    public void testCycleIsCountedOnce() {
+        Employee first = newEmployee();
+        Employee second = newEmployee();
+        first.setDirectReports(Arrays.asList(stub(second)));
+        second.setDirectReports(Arrays.asList(stub(first)));
+        employeeRepository.insert(Arrays.asList(first, second));
+
+        TraversalResult result = traversal.traverse(first.getEmployeeId());
+
+        assertEquals(1, result.getNumberOfReports());
+    }
+
+    @Test
+    public void testSharedReportIsCountedPerPath() {
+        Employee leaf = newEmployee();
+        Employee shared = newEmployee();
+        shared.setDirectReports(Arrays.asList(stub(leaf)));
+        Employee left = newEmployee();
+        left.setDirectReports(Arrays.asList(stub(shared)));
+        Employee right = newEmployee();
+        right.setDirectReports(Arrays.asList(stub(shared)));
+        Employee top = newEmployee();
+        top.setDirectReports(Arrays.asList(stub(left), stub(right)));
+        employeeRepository.insert(Arrays.asList(leaf, shared, left, right, top));
+
+        TraversalResult result = traversal.traverse(top.getEmployeeId());
+
+        // left, right, and shared and leaf under each of them, with the shared level still fetched in one query
+        assertEquals(6, result.getNumberOfReports());
+        assertEquals(recursiveTraversal.traverse(top.getEmployeeId()).getNumberOfReports(), result.getNumberOfReports());
+        assertEquals(4, result.getQueryCount());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDanglingDirectReport() {
+        Employee manager = newEmployee();
+        manager.setDirectReports(Arrays.asList(stub(newEmployee())));
+        employeeRepository.insert(manager);
+
+        traversal.traverse(manager.getEmployeeId());
+    }
+
+    private static Employee newEmployee() {
+        Employee employee = new Employee();
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        employee.setFirstName("Test");
+        employee.setLastName("Employee");
+        return employee;
+    }
+
+    private static Employee stub(Employee employee) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employee.getEmployeeId());
+        return stub;
+    }
+}
@@ -1,10 +1,28 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mindex.challenge.changes.ChangeLog;
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.config.WireFormatConfig;
+import com.mindex.challenge.data.BulkCreateResult;
+import com.mindex.challenge.data.ChangeEvent;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.CompensationRollup;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeFacets;
+import com.mindex.challenge.data.EmployeeSearchResult;
+import com.mindex.challenge.data.ManagementChain;
+import com.mindex.challenge.data.MultiGetRequest;
+import com.mindex.challenge.data.MultiGetResult;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.index.EmployeeSearchIndex;
+import com.mindex.challenge.index.OrgGraphIndex;
 import com.mindex.challenge.service.EmployeeService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +30,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -20,13 +39,30 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -37,6 +73,8 @@ public class EmployeeServiceImplTest {
     private String reportingStructureIdUrl;
     private String compensationUrl;
     private String compensationReadUrl;
+    private String bulkUrl;
+    private String managementChainUrl;
 
     @Autowired
     private EmployeeService employeeService;
@@ -50,6 +88,21 @@ public class EmployeeServiceImplTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrgGraphIndex orgGraphIndex;
+
+    @Autowired
+    private CompensationRepository compensationRepository;
+
     @Before
     public void setup() {
         employeeUrl = "http://localhost:" + port + "/employee";
@@ -57,6 +110,8 @@ public class EmployeeServiceImplTest {
         reportingStructureIdUrl = "http://localhost:" + port + "/employee/reporting-structure/{id}";
         compensationUrl = "http://localhost:" + port + "/employee/compensation";
         compensationReadUrl = "http://localhost:" + port + "/employee/compensation/{id}";
+        bulkUrl = "http://localhost:" + port + "/employee/bulk";
+        managementChainUrl = "http://localhost:" + port + "/employee/{id}/management-chain";
     }
 
     @Test
@@ -94,6 +149,186 @@ public class EmployeeServiceImplTest {
                         readEmployee.getEmployeeId()).getBody();
 
         assertEmployeeEquivalence(readEmployee, updatedEmployee);
+
+        // Read after update checks
+        Employee rereadEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, createdEmployee.getEmployeeId()).getBody();
+        assertEmployeeEquivalence(updatedEmployee, rereadEmployee);
+    }
+
+    @Test
+    public void testConditionalRequests() {
+        Employee employee = new Employee();
+        employee.setFirstName("Mal");
+        employee.setLastName("Evans");
+        employee = restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody();
+        assertEquals(Long.valueOf(0), employee.getVersion());
+
+        ResponseEntity<Employee> read = restTemplate.getForEntity(employeeIdUrl, Employee.class, employee.getEmployeeId());
+        String eTag = read.getHeaders().getETag();
+        assertEquals("\"0\"", eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, conditionalGet(employeeIdUrl, employee.getEmployeeId(), eTag, Employee.class).getStatusCode());
+
+        // Two writers start from version 0; the second one's update is refused
+        employee.setPosition("Road Manager");
+        ResponseEntity<Employee> updated = put(employee, null);
+        assertEquals(HttpStatus.OK, updated.getStatusCode());
+        assertEquals(Long.valueOf(1), updated.getBody().getVersion());
+        assertEquals("\"1\"", updated.getHeaders().getETag());
+
+        employee.setPosition("Assistant");
+        employee.setVersion(0L);
+        assertEquals(HttpStatus.CONFLICT, put(employee, null).getStatusCode());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, put(employee, eTag).getStatusCode());
+        assertEquals(HttpStatus.OK, put(employee, updated.getHeaders().getETag()).getStatusCode());
+        assertEquals(HttpStatus.OK, conditionalGet(employeeIdUrl, employee.getEmployeeId(), eTag, Employee.class).getStatusCode());
+        assertEquals("Assistant", restTemplate.getForObject(employeeIdUrl, Employee.class, employee.getEmployeeId()).getPosition());
+
+        // A reporting structure stays cached until someone joins or leaves the subtree
+        Employee manager = new Employee();
+        manager.setFirstName("Neil");
+        manager.setDirectReports(Arrays.asList(stub(employee.getEmployeeId())));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+
+        String structureETag = restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                manager.getEmployeeId()).getHeaders().getETag();
+        assertNotNull(structureETag);
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                conditionalGet(reportingStructureIdUrl, manager.getEmployeeId(), structureETag, ReportingStructure.class).getStatusCode());
+
+        employee.setVersion(null);
+        employee.setDirectReports(Arrays.asList(stub("newHire")));
+        assertEquals(HttpStatus.OK, put(employee, null).getStatusCode());
+        ResponseEntity<ReportingStructure> structure =
+                conditionalGet(reportingStructureIdUrl, manager.getEmployeeId(), structureETag, ReportingStructure.class);
+        assertEquals(HttpStatus.OK, structure.getStatusCode());
+        assertEquals(2, structure.getBody().getNumberOfReports());
+    }
+
+    @Test
+    public void testPatch() {
+        Employee employee = new Employee();
+        employee.setFirstName("Derek");
+        employee.setLastName("Taylor");
+        employee.setPosition("Press Officer");
+        employee.setDirectReports(Arrays.asList(stub("a")));
+        employee = restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody();
+
+        ResponseEntity<Void> patched = patch(employee.getEmployeeId(), "{\"position\": \"Publicist\", \"lastName\": null}", null);
+        assertEquals(HttpStatus.NO_CONTENT, patched.getStatusCode());
+        assertEquals("\"1\"", patched.getHeaders().getETag());
+
+        Employee patchedEmployee = restTemplate.getForObject(employeeIdUrl, Employee.class, employee.getEmployeeId());
+        assertEquals("Derek", patchedEmployee.getFirstName());
+        assertEquals("Publicist", patchedEmployee.getPosition());
+        assertNull(patchedEmployee.getLastName());
+        assertEquals("a", patchedEmployee.getDirectReports().get(0).getEmployeeId());
+
+        patch(employee.getEmployeeId(), "{\"directReports\": [{\"employeeId\": \"b\"}, {\"employeeId\": \"c\"}]}", "\"1\"");
+        assertEquals(2, restTemplate.getForObject(reportingStructureIdUrl, ReportingStructure.class,
+                employee.getEmployeeId()).getNumberOfReports());
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, patch(employee.getEmployeeId(), "{\"position\": \"Author\"}", "\"1\"").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, patch(employee.getEmployeeId(), "{\"employeeId\": \"x\"}", null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, patch(employee.getEmployeeId(), "{\"position\": 7}", null).getStatusCode());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, patch("NotReal", "{\"position\": \"Author\"}", null).getStatusCode());
+    }
+
+    @Test
+    public void testAddAndRemoveDirectReport() {
+        Employee manager = new Employee();
+        manager.setFirstName("Allen");
+        manager.setLastName("Klein");
+        manager.setDirectReports(Arrays.asList(stub("a"), stub("b")));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+        String directReportsUrl = employeeIdUrl + "/direct-reports/{reportId}";
+
+        ResponseEntity<Void> added = restTemplate.exchange(directReportsUrl, HttpMethod.PUT, null, Void.class,
+                manager.getEmployeeId(), "c");
+        assertEquals(HttpStatus.NO_CONTENT, added.getStatusCode());
+        // Adding a report that is already there leaves the list alone
+        restTemplate.exchange(directReportsUrl, HttpMethod.PUT, null, Void.class, manager.getEmployeeId(), "a");
+        assertEquals(3, restTemplate.getForObject(reportingStructureIdUrl, ReportingStructure.class,
+                manager.getEmployeeId()).getNumberOfReports());
+
+        restTemplate.delete(directReportsUrl, manager.getEmployeeId(), "a");
+        Employee readManager = restTemplate.getForObject(employeeIdUrl, Employee.class, manager.getEmployeeId());
+        assertEquals(Arrays.asList("b", "c"), Arrays.asList(readManager.getDirectReports().get(0).getEmployeeId(),
+                readManager.getDirectReports().get(1).getEmployeeId()));
+        // Re-adding "a" changed nothing, so only adding "c" and removing "a" moved the version on
+        assertEquals(Long.valueOf(2), readManager.getVersion());
+        assertEquals(2, restTemplate.getForObject(reportingStructureIdUrl, ReportingStructure.class,
+                manager.getEmployeeId()).getNumberOfReports());
+
+        long sequence = changeLog.getLastSequence();
+        ResponseEntity<Void> removedAbsent = restTemplate.exchange(directReportsUrl, HttpMethod.DELETE, null, Void.class,
+                manager.getEmployeeId(), "a");
+        assertEquals(HttpStatus.NO_CONTENT, removedAbsent.getStatusCode());
+        assertEquals("\"2\"", removedAbsent.getHeaders().getETag());
+        assertEquals(sequence, changeLog.getLastSequence());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(added.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, restTemplate.exchange(directReportsUrl, HttpMethod.DELETE,
+                new HttpEntity<>(headers), Void.class, manager.getEmployeeId(), "b").getStatusCode());
+    }
+
+    @Test
+    public void testAddDirectReportMatchesStoredStubById() {
+        Employee report = new Employee();
+        report.setEmployeeId("d");
+        report.setFirstName("Derek");
+        Employee manager = new Employee();
+        manager.setDirectReports(Collections.singletonList(report));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+
+        restTemplate.exchange(employeeIdUrl + "/direct-reports/{reportId}", HttpMethod.PUT, null, Void.class,
+                manager.getEmployeeId(), "d");
+        Employee readManager = restTemplate.getForObject(employeeIdUrl, Employee.class, manager.getEmployeeId());
+        assertEquals(1, readManager.getDirectReports().size());
+        assertEquals(manager.getVersion(), readManager.getVersion());
+
+        restTemplate.delete(employeeIdUrl + "/direct-reports/{reportId}", manager.getEmployeeId(), "d");
+        assertTrue(restTemplate.getForObject(employeeIdUrl, Employee.class, manager.getEmployeeId())
+                .getDirectReports().isEmpty());
+    }
+
+    @Test
+    public void testDirectReportWithoutIdIsRejected() {
+        Employee manager = restTemplate.postForEntity(employeeUrl, new Employee(), Employee.class).getBody();
+        String withoutId = "{\"directReports\": [{}]}";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.postForEntity(employeeUrl,
+                new HttpEntity<>(withoutId, headers), String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(withoutId, headers), String.class, manager.getEmployeeId()).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, patch(manager.getEmployeeId(), withoutId, null).getStatusCode());
+    }
+
+    private ResponseEntity<Void> patch(String id, String mergePatch, String ifMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("application/merge-patch+json"));
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return restTemplate.exchange(employeeIdUrl, HttpMethod.PATCH, new HttpEntity<>(mergePatch, headers), Void.class, id);
+    }
+
+    private ResponseEntity<Employee> put(Employee employee, String ifMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return restTemplate.exchange(employeeIdUrl, HttpMethod.PUT, new HttpEntity<>(employee, headers), Employee.class,
+                employee.getEmployeeId());
+    }
+
+    private <T> ResponseEntity<T> conditionalGet(String url, String id, String eTag, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), type, id);
     }
 
     private static void assertEmployeeEquivalence(Employee expected, Employee actual) {
@@ -136,6 +371,383 @@ public class EmployeeServiceImplTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
 
+    @Test
+    public void testGenerateReportingStructureFollowsUpdates() {
+        String ringoId = "03aa1462-ffa9-4978-901b-7c001562cf6f";
+
+        Employee manager = new Employee();
+        manager.setFirstName("Brian");
+        manager.setLastName("Epstein");
+        manager.setDirectReports(Arrays.asList(stub(ringoId)));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+
+        Employee director = new Employee();
+        director.setFirstName("George");
+        director.setLastName("Martin");
+        director.setDirectReports(Arrays.asList(stub(manager.getEmployeeId())));
+        director = restTemplate.postForEntity(employeeUrl, director, Employee.class).getBody();
+
+        assertEquals(4, restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                director.getEmployeeId()).getBody().getNumberOfReports());
+
+        Employee newHire = new Employee();
+        newHire.setFirstName("Billy");
+        newHire.setLastName("Preston");
+        newHire = restTemplate.postForEntity(employeeUrl, newHire, Employee.class).getBody();
+
+        manager.setDirectReports(Arrays.asList(stub(ringoId), stub(newHire.getEmployeeId())));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange(employeeIdUrl, HttpMethod.PUT, new HttpEntity<>(manager, headers), Employee.class,
+                manager.getEmployeeId());
+
+        assertEquals(4, restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                manager.getEmployeeId()).getBody().getNumberOfReports());
+        assertEquals(5, restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                director.getEmployeeId()).getBody().getNumberOfReports());
+    }
+
+    @Test
+    public void testExportReportingStructures() throws IOException {
+        String johnId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        String ringoId = "03aa1462-ffa9-4978-901b-7c001562cf6f";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.parseMediaType("application/x-ndjson")));
+        String ndjson = restTemplate.exchange(employeeUrl + "/reporting-structure", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class).getBody();
+
+        Map<String, Integer> ndjsonCounts = new HashMap<>();
+        for (String line : ndjson.split("\n")) {
+            ReportingStructure reportingStructure = objectMapper.readValue(line, ReportingStructure.class);
+            ndjsonCounts.put(reportingStructure.getEmployee(), reportingStructure.getNumberOfReports());
+        }
+        assertEquals(restTemplate.getForObject(reportingStructureIdUrl, ReportingStructure.class, johnId)
+                .getNumberOfReports(), (int) ndjsonCounts.get(johnId));
+        assertEquals(2, (int) ndjsonCounts.get(ringoId));
+
+        ReportingStructure[] array = restTemplate.getForObject(employeeUrl + "/reporting-structure", ReportingStructure[].class);
+        assertEquals(ndjsonCounts.size(), array.length);
+        for (ReportingStructure reportingStructure : array) {
+            assertEquals(ndjsonCounts.get(reportingStructure.getEmployee()), (Integer) reportingStructure.getNumberOfReports());
+        }
+    }
+
+    @Test
+    public void testGetManagementChain() {
+        String peteId = "62c1084e-6e34-4630-93fd-9153afb65309";
+
+        ManagementChain managementChain = restTemplate.getForEntity(managementChainUrl, ManagementChain.class, peteId).getBody();
+
+        assertNotNull(managementChain);
+        assertEquals(peteId, managementChain.getEmployee());
+        assertEquals(2, managementChain.getManagers().size());
+        assertEquals("Ringo", managementChain.getManagers().get(0).getFirstName());
+        assertEquals("John", managementChain.getManagers().get(1).getFirstName());
+
+        ManagementChain topChain = restTemplate.getForEntity(managementChainUrl, ManagementChain.class,
+                "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+        assertEquals(0, topChain.getManagers().size());
+
+        ResponseEntity<ManagementChain> response = restTemplate.getForEntity(managementChainUrl, ManagementChain.class, "NotReal");
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testReportsToAndSubordinates() {
+        String johnId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        String ringoId = "03aa1462-ffa9-4978-901b-7c001562cf6f";
+        String peteId = "62c1084e-6e34-4630-93fd-9153afb65309";
+        String georgeId = "c0c2293d-16bd-4603-8e08-638a9d18b22c";
+        String reportsToUrl = employeeIdUrl + "/reports-to/{managerId}";
+
+        assertEquals(Boolean.TRUE, restTemplate.getForObject(reportsToUrl, Boolean.class, peteId, johnId));
+        assertEquals(Boolean.FALSE, restTemplate.getForObject(reportsToUrl, Boolean.class, johnId, peteId));
+
+        String[] subordinates = restTemplate.getForObject(employeeIdUrl + "/subordinates", String[].class, ringoId);
+        assertEquals(new HashSet<>(Arrays.asList(peteId, georgeId)), new HashSet<>(Arrays.asList(subordinates)));
+
+        assertEquals(0, restTemplate.getForObject(employeeIdUrl + "/subordinates?offset=" + Integer.MAX_VALUE,
+                String[].class, ringoId).length);
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(employeeIdUrl + "/subordinates?offset=-1",
+                String.class, ringoId).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(employeeIdUrl + "/subordinates?limit=-1",
+                String.class, ringoId).getStatusCode());
+    }
+
+    @Test
+    public void testCompensationRollup() {
+        Employee report = new Employee();
+        report.setFirstName("Yoko");
+        report = restTemplate.postForEntity(employeeUrl, report, Employee.class).getBody();
+
+        Employee manager = new Employee();
+        manager.setFirstName("Allen");
+        manager.setDirectReports(Arrays.asList(stub(report.getEmployeeId())));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+
+        for (Employee employee : Arrays.asList(report, manager)) {
+            Compensation compensation = new Compensation();
+            compensation.setEmployee(employee.getEmployeeId());
+            compensation.setSalary(employee == manager ? 90000 : 60000);
+            compensation.setEffectiveDate(new Date());
+            restTemplate.postForEntity(compensationUrl, compensation, Compensation.class);
+        }
+
+        CompensationRollup rollup = restTemplate.getForEntity(employeeIdUrl + "/compensation-rollup",
+                CompensationRollup.class, manager.getEmployeeId()).getBody();
+
+        assertNotNull(rollup);
+        assertEquals(2, rollup.getHeadcount());
+        assertEquals(150000, rollup.getSalarySum(), 0.01);
+        assertEquals(60000, rollup.getMinSalary(), 0.01);
+        assertEquals(90000, rollup.getMaxSalary(), 0.01);
+        assertEquals(75000, rollup.getMeanSalary(), 0.01);
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(employeeId);
+        return employee;
+    }
+
+    @Test
+    public void testBulkCreateNdjson() throws IOException {
+        String body = "{\"firstName\":\"Mal\",\"lastName\":\"Evans\"}\n"
+                + "{\"firstName\": not json}\n"
+                + "\n"
+                + "{\"firstName\":\"Neil\",\"lastName\":\"Aspinall\"}\n";
+
+        BulkCreateResult[] results = postBulk(body, MediaType.parseMediaType("application/x-ndjson"));
+
+        assertEquals(3, results.length);
+        assertNotNull(results[0].getEmployeeId());
+        assertNotNull(results[1].getError());
+        assertEquals(2, results[2].getIndex());
+
+        Employee readEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, results[2].getEmployeeId()).getBody();
+        assertEquals("Aspinall", readEmployee.getLastName());
+    }
+
+    @Test
+    public void testBulkCreateFailsInvalidRecordAlone() throws IOException {
+        String body = "{\"firstName\":\"Mal\"}\n"
+                + "{\"firstName\":\"Derek\",\"directReports\":[{}]}\n"
+                + "{\"firstName\":\"Neil\"}\n";
+
+        BulkCreateResult[] results = postBulk(body, MediaType.parseMediaType("application/x-ndjson"));
+
+        assertEquals(3, results.length);
+        assertNotNull(results[0].getEmployeeId());
+        assertNull(results[1].getEmployeeId());
+        assertNotNull(results[1].getError());
+        assertNotNull(results[2].getEmployeeId());
+        assertEquals("Neil", restTemplate.getForEntity(employeeIdUrl, Employee.class, results[2].getEmployeeId())
+                .getBody().getFirstName());
+    }
+
+    @Test
+    public void testBulkCreateJsonArray() throws IOException {
+        String body = "[{\"firstName\":\"Mal\",\"lastName\":\"Evans\"},{\"firstName\":\"Neil\",\"lastName\":\"Aspinall\"}]";
+
+        BulkCreateResult[] results = postBulk(body, MediaType.APPLICATION_JSON);
+
+        assertEquals(2, results.length);
+        Employee readEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, results[0].getEmployeeId()).getBody();
+        assertEquals("Evans", readEmployee.getLastName());
+    }
+
+    private BulkCreateResult[] postBulk(String body, MediaType contentType) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        String response = restTemplate.postForEntity(bulkUrl, new HttpEntity<>(body, headers), String.class).getBody();
+
+        String[] lines = response.split("\n");
+        BulkCreateResult[] results = new BulkCreateResult[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            results[i] = objectMapper.readValue(lines[i], BulkCreateResult.class);
+        }
+        return results;
+    }
+
+    @Test
+    public void testMultiGetEmployees() {
+        String johnId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        String paulId = "b7839309-3348-463b-a7e3-5de1c168beb3";
+
+        MultiGetResult<Employee> result = restTemplate.exchange(employeeUrl + "?ids={ids}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<MultiGetResult<Employee>>() {}, paulId + ",NotReal," + johnId).getBody();
+
+        assertNotNull(result);
+        assertEquals(2, result.getFound().size());
+        assertEquals(paulId, result.getFound().get(0).getEmployeeId());
+        assertEquals(johnId, result.getFound().get(1).getEmployeeId());
+        assertEquals(Arrays.asList("NotReal"), result.getNotFound());
+    }
+
+    @Test
+    public void testExpandSharedReportOnce() throws IOException {
+        Employee shared = new Employee();
+        shared.setFirstName("Mal");
+        shared = restTemplate.postForEntity(employeeUrl, shared, Employee.class).getBody();
+        Employee first = new Employee();
+        first.setFirstName("Neil");
+        first.setDirectReports(Collections.singletonList(stub(shared.getEmployeeId())));
+        first = restTemplate.postForEntity(employeeUrl, first, Employee.class).getBody();
+        Employee second = new Employee();
+        second.setFirstName("Derek");
+        second.setDirectReports(Collections.singletonList(stub(shared.getEmployeeId())));
+        second = restTemplate.postForEntity(employeeUrl, second, Employee.class).getBody();
+        Employee top = new Employee();
+        top.setFirstName("Brian");
+        top.setDirectReports(Arrays.asList(stub(first.getEmployeeId()), stub(second.getEmployeeId())));
+        top = restTemplate.postForEntity(employeeUrl, top, Employee.class).getBody();
+
+        // The report both managers share is written in full where it is first reached and as a stub after that
+        JsonNode expanded = objectMapper.readTree(restTemplate.getForEntity(employeeIdUrl + "?expand=directReports&depth=2",
+                String.class, top.getEmployeeId()).getBody());
+        JsonNode firstReport = expanded.get("directReports").get(0).get("directReports").get(0);
+        JsonNode secondReport = expanded.get("directReports").get(1).get("directReports").get(0);
+        assertEquals("Mal", firstReport.get("firstName").asText());
+        assertEquals(1, secondReport.size());
+        assertEquals(shared.getEmployeeId(), secondReport.get("employeeId").asText());
+
+        // Whole-employee reads still write the null fields of their stubs
+        JsonNode whole = objectMapper.readTree(restTemplate.getForEntity(employeeIdUrl, String.class,
+                first.getEmployeeId()).getBody());
+        assertTrue(whole.get("directReports").get(0).get("firstName").isNull());
+    }
+
+    @Test
+    public void testReadFieldsAndExpand() {
+        String johnId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        String fieldsUrl = employeeIdUrl + "?fields={fields}";
+
+        ResponseEntity<Employee> projected = restTemplate.getForEntity(fieldsUrl, Employee.class, johnId, "firstName,position");
+        assertEquals("John", projected.getBody().getFirstName());
+        assertEquals("Development Manager", projected.getBody().getPosition());
+        assertNull(projected.getBody().getLastName());
+        assertNull(projected.getBody().getDirectReports());
+        assertNull(projected.getHeaders().getETag());
+
+        ResponseEntity<Employee> expanded = restTemplate.getForEntity(fieldsUrl + "&expand=directReports&depth=2",
+                Employee.class, johnId, "firstName");
+        assertEquals("false", expanded.getHeaders().getFirst("X-Expansion-Truncated"));
+        Employee ringo = expanded.getBody().getDirectReports().get(1);
+        assertEquals("Ringo", ringo.getFirstName());
+        assertNull(ringo.getLastName());
+        assertEquals("Pete", ringo.getDirectReports().get(0).getFirstName());
+        assertEquals("George", ringo.getDirectReports().get(1).getFirstName());
+
+        // Expanding 1000 reports on top of the manager itself would pass the node cap, so they stay as stubs
+        Employee manager = new Employee();
+        manager.setFirstName("Brian");
+        manager.setDirectReports(new ArrayList<>());
+        for (int i = 0; i < 1000; i++) {
+            manager.getDirectReports().add(stub("report-" + i));
+        }
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+        ResponseEntity<Employee> truncated = restTemplate.getForEntity(employeeIdUrl + "?expand=directReports",
+                Employee.class, manager.getEmployeeId());
+        assertEquals("true", truncated.getHeaders().getFirst("X-Expansion-Truncated"));
+        assertEquals("Brian", truncated.getBody().getFirstName());
+        assertNull(truncated.getBody().getDirectReports().get(0).getFirstName());
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(fieldsUrl, Employee.class, johnId, "salary").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(employeeIdUrl + "?expand=directReports&depth=9",
+                Employee.class, johnId).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(employeeIdUrl + "?expand=manager",
+                Employee.class, johnId).getStatusCode());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, restTemplate.getForEntity(fieldsUrl, Employee.class, "NotReal",
+                "firstName").getStatusCode());
+
+        MultiGetRequest request = new MultiGetRequest();
+        request.setIds(Arrays.asList(johnId, "NotReal"));
+        request.setFields(new HashSet<>(Arrays.asList("lastName")));
+        MultiGetResult<Employee> result = restTemplate.exchange(employeeUrl + "/_mget", HttpMethod.POST,
+                new HttpEntity<>(request), new ParameterizedTypeReference<MultiGetResult<Employee>>() {}).getBody();
+        assertEquals("Lennon", result.getFound().get(0).getLastName());
+        assertNull(result.getFound().get(0).getFirstName());
+        assertEquals(Arrays.asList("NotReal"), result.getNotFound());
+
+        // Requests without ids, or with more than one multi-get answers, are turned away
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.exchange(employeeUrl + "/_mget", HttpMethod.POST,
+                new HttpEntity<>("{}", headers), String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.exchange(compensationUrl + "/_mget", HttpMethod.POST,
+                new HttpEntity<>("{}", headers), String.class).getStatusCode());
+        request.setIds(Collections.nCopies(MultiGetRequest.MAX_IDS + 1, johnId));
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.exchange(employeeUrl + "/_mget", HttpMethod.POST,
+                new HttpEntity<>(request), String.class).getStatusCode());
+    }
+
+    @Test
+    public void testChangeFeed() throws Exception {
+        long since = changeLog.getLastSequence();
+        Employee employee = restTemplate.postForEntity(employeeUrl, stub(null), Employee.class).getBody();
+        String changesUrl = "http://localhost:" + port + "/changes?since={since}&wait={wait}";
+
+        ChangeEvent[] created = restTemplate.getForObject(changesUrl, ChangeEvent[].class, since, 0);
+        assertEquals(1, created.length);
+        assertEquals(since + 1, created[0].getSequence());
+        assertEquals(ChangeEvent.Entity.EMPLOYEE, created[0].getEntity());
+        assertEquals(ChangeEvent.Operation.CREATED, created[0].getOperation());
+        assertEquals(employee.getEmployeeId(), created[0].getEmployeeId());
+
+        // A poll with nothing new waits for the next write
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employee.getEmployeeId());
+        compensation.setSalary(1000);
+        compensation.setEffectiveDate(new Date());
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            restTemplate.postForEntity(compensationUrl, compensation, Compensation.class);
+        });
+        writer.start();
+        ChangeEvent[] polled = restTemplate.getForObject(changesUrl, ChangeEvent[].class, since + 1, 10);
+        writer.join();
+        assertEquals(1, polled.length);
+        assertEquals(ChangeEvent.Entity.COMPENSATION, polled[0].getEntity());
+        assertNotNull(polled[0].getCompensationId());
+
+        // The stream stays open, so read its first line and hang up rather than letting a client drain it
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/changes?since=" + since)
+                .openConnection();
+        connection.setRequestProperty(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        try (BufferedReader stream = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("id:" + (since + 1), stream.readLine());
+        } finally {
+            connection.disconnect();
+        }
+
+        assertEquals(HttpStatus.GONE, restTemplate.getForEntity(changesUrl, String.class, since + 100, 0).getStatusCode());
+    }
+
+    @Test
+    public void testMultiGetCompensations() {
+        String employeeId = "62c1084e-6e34-4630-93fd-9153afb65309";
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employeeId);
+        compensation.setSalary(75000);
+        compensation.setEffectiveDate(new Date());
+        restTemplate.postForEntity(compensationUrl, compensation, Compensation.class);
+
+        MultiGetRequest request = new MultiGetRequest();
+        request.setIds(Arrays.asList(employeeId, "NotReal"));
+        MultiGetResult<Compensation> result = restTemplate.exchange(compensationUrl + "/_mget", HttpMethod.POST,
+                new HttpEntity<>(request), new ParameterizedTypeReference<MultiGetResult<Compensation>>() {}).getBody();
+
+        assertNotNull(result);
+        assertEquals(1, result.getFound().size());
+        assertCompensationEquivalence(compensation, result.getFound().get(0));
+        assertEquals(Arrays.asList("NotReal"), result.getNotFound());
+    }
+
     private void insertTestEmployeeData() throws IOException {
         InputStream inputStream = this.getClass().getResourceAsStream("/static/employee_database.json");
         Employee[] employees = objectMapper.readValue(inputStream, Employee[].class);
@@ -163,12 +775,291 @@ public class EmployeeServiceImplTest {
         assertCompensationEquivalence(expectedCompensation, readCompensation);
     }
 
+    @Test
+    public void testCreateCompensationWithoutEffectiveDate() {
+        Employee employee = restTemplate.postForEntity(employeeUrl, new Employee(), Employee.class).getBody();
+        Compensation compensation = new Compensation();
+        compensation.setEmployee(employee.getEmployeeId());
+        compensation.setSalary(70000);
+
+        Compensation created = restTemplate.postForEntity(compensationUrl, compensation, Compensation.class).getBody();
+        assertNotNull(created.getEffectiveDate());
+        Compensation read = restTemplate.getForEntity(compensationReadUrl, Compensation.class,
+                employee.getEmployeeId()).getBody();
+        assertEquals(created.getId(), read.getId());
+
+        // An undated entry already stored is left out of a rebuild rather than failing it
+        Compensation undated = new Compensation();
+        undated.setEmployee(employee.getEmployeeId());
+        undated.setSalary(1);
+        compensationRepository.insert(undated);
+        orgGraphIndex.rebuild();
+        assertEquals(Double.valueOf(70000), employeeService.getCompensationRollup(employee.getEmployeeId()).getMaxSalary());
+    }
+
     private static void assertCompensationEquivalence(Compensation expected, Compensation actual) {
         assertEquals(expected.getEmployee(), actual.getEmployee());
         assertEquals(expected.getSalary(), actual.getSalary(), 0.01);
         assertEquals(expected.getEffectiveDate(), actual.getEffectiveDate());
     }
 
+    @Test
+    public void testCompensationHistory() {
+        String employeeId = "c0c2293d-16bd-4603-8e08-638a9d18b22c";
+        long day = 24L * 60 * 60 * 1000;
+        Date now = new Date();
+        Date lastYear = new Date(now.getTime() - 365 * day);
+        Date lastMonth = new Date(now.getTime() - 30 * day);
+        Date nextMonth = new Date(now.getTime() + 30 * day);
+
+        for (Date effectiveDate : Arrays.asList(lastMonth, nextMonth, lastYear)) {
+            Compensation compensation = new Compensation();
+            compensation.setEmployee(employeeId);
+            compensation.setSalary(effectiveDate.getTime() / day);
+            compensation.setEffectiveDate(effectiveDate);
+            restTemplate.postForEntity(compensationUrl, compensation, Compensation.class);
+        }
+
+        // Current compensation ignores the entry that is not yet effective
+        Compensation current = restTemplate.getForEntity(compensationReadUrl, Compensation.class, employeeId).getBody();
+        assertEquals(lastMonth, current.getEffectiveDate());
+
+        Compensation asOf = restTemplate.getForEntity(compensationReadUrl + "?asOf={asOf}", Compensation.class,
+                employeeId, isoDate(new Date(lastMonth.getTime() - day))).getBody();
+        assertEquals(lastYear, asOf.getEffectiveDate());
+
+        Compensation[] history = restTemplate.getForEntity(compensationReadUrl + "/history?from={from}", Compensation[].class,
+                employeeId, isoDate(new Date(lastYear.getTime() + day))).getBody();
+        assertEquals(2, history.length);
+        assertEquals(lastMonth, history[0].getEffectiveDate());
+        assertEquals(nextMonth, history[1].getEffectiveDate());
+
+        ResponseEntity<Compensation> response = restTemplate.getForEntity(compensationReadUrl + "?asOf={asOf}",
+                Compensation.class, employeeId, isoDate(new Date(lastYear.getTime() - day)));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    private static String isoDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    @Test
+    public void testMultiGetCurrentCompensation() {
+        Employee employee = new Employee();
+        employee.setFirstName("Cynthia");
+        employee = restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody();
+
+        long day = 24L * 60 * 60 * 1000;
+        for (int daysAgo : new int[] {10, 1, 5}) {
+            Compensation compensation = new Compensation();
+            compensation.setEmployee(employee.getEmployeeId());
+            compensation.setSalary(daysAgo);
+            compensation.setEffectiveDate(new Date(System.currentTimeMillis() - daysAgo * day));
+            restTemplate.postForEntity(compensationUrl, compensation, Compensation.class);
+        }
+
+        MultiGetResult<Compensation> result = restTemplate.exchange(compensationUrl + "?ids={ids}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<MultiGetResult<Compensation>>() {}, employee.getEmployeeId()).getBody();
+
+        assertEquals(1, result.getFound().size());
+        assertEquals(1, result.getFound().get(0).getSalary(), 0.01);
+    }
+
+    @Test
+    public void testSearchAndFacets() {
+        String searchUrl = employeeUrl + "/search?department=Acoustics&limit={limit}";
+        String[][] people = {{"Antonio", "Stradivari", "Luthier"}, {"Giuseppe", "Guarneri", "Luthier"},
+                {"Nicolo", "Amati", "Tuner"}};
+        String[] ids = new String[people.length];
+        for (int i = 0; i < people.length; i++) {
+            Employee employee = new Employee();
+            employee.setFirstName(people[i][0]);
+            employee.setLastName(people[i][1]);
+            employee.setPosition(people[i][2]);
+            employee.setDepartment("Acoustics");
+            ids[i] = restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody().getEmployeeId();
+        }
+
+        // Paging
+        EmployeeSearchResult first = restTemplate.getForObject(searchUrl, EmployeeSearchResult.class, 2);
+        assertEquals(2, first.getEmployees().size());
+        assertEquals(ids[0], first.getEmployees().get(0).getEmployeeId());
+        assertEquals(ids[1], first.getEmployees().get(1).getEmployeeId());
+        assertNotNull(first.getNextCursor());
+
+        EmployeeSearchResult second = restTemplate.getForObject(searchUrl + "&cursor={cursor}",
+                EmployeeSearchResult.class, 2, first.getNextCursor());
+        assertEquals(1, second.getEmployees().size());
+        assertEquals(ids[2], second.getEmployees().get(0).getEmployeeId());
+        assertNull(second.getNextCursor());
+
+        // Name prefixes ignore case, and fields limit what comes back
+        EmployeeSearchResult named = restTemplate.getForObject(
+                employeeUrl + "/search?department=Acoustics&lastName=strad&fields=firstName", EmployeeSearchResult.class);
+        assertEquals(1, named.getEmployees().size());
+        assertEquals("Antonio", named.getEmployees().get(0).getFirstName());
+        assertNull(named.getEmployees().get(0).getLastName());
+
+        // Facets follow writes
+        assertEquals(HttpStatus.NO_CONTENT, patch(ids[1], "{\"position\":\"Tuner\"}", null).getStatusCode());
+        EmployeeFacets facets = restTemplate.getForObject(employeeUrl + "/search/facets?department=Acoustics",
+                EmployeeFacets.class);
+        assertEquals(3, facets.getTotal());
+        assertEquals(Integer.valueOf(3), facets.getDepartments().get("Acoustics"));
+        assertEquals(Integer.valueOf(1), facets.getPositions().get("Luthier"));
+        assertEquals(Integer.valueOf(2), facets.getPositions().get("Tuner"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(searchUrl + "&cursor=next", String.class, 2)
+                .getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(searchUrl, String.class, 0).getStatusCode());
+        String generation = first.getNextCursor().substring(0, first.getNextCursor().indexOf('.'));
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(searchUrl + "&cursor={cursor}", String.class, 2,
+                generation + ".-5").getStatusCode());
+
+        // A rebuild renumbers employees, so a cursor handed out before it is gone
+        employeeSearchIndex.rebuild();
+        assertEquals(HttpStatus.GONE, restTemplate.getForEntity(searchUrl + "&cursor={cursor}", String.class, 2,
+                first.getNextCursor()).getStatusCode());
+    }
+
+    @Test
+    public void testWireFormats() throws IOException {
+        String johnId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        Employee john = restTemplate.getForObject(employeeIdUrl, Employee.class, johnId);
+
+        // Anything acceptable still means JSON
+        assertEquals(MediaType.APPLICATION_JSON, getAs(MediaType.ALL_VALUE, employeeIdUrl, johnId).getHeaders().getContentType());
+
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+        ResponseEntity<byte[]> smileResponse = getAs(WireFormatConfig.SMILE_VALUE, employeeIdUrl, johnId);
+        assertEquals(WireFormatConfig.SMILE_VALUE, smileResponse.getHeaders().getContentType().toString());
+        Employee smileJohn = smile.readValue(smileResponse.getBody(), Employee.class);
+        assertEquals(john.getLastName(), smileJohn.getLastName());
+        assertEquals(john.getDirectReports().size(), smileJohn.getDirectReports().size());
+
+        // Each format is its own representation, so a JSON tag does not revalidate a Smile response
+        ResponseEntity<byte[]> jsonResponse = getAs(MediaType.APPLICATION_JSON_VALUE, employeeIdUrl, johnId);
+        assertTrue(jsonResponse.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+        assertTrue(smileResponse.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+        String smileETag = smileResponse.getHeaders().getETag();
+        assertEquals(jsonResponse.getHeaders().getETag().replace("\"", "") + "-smile", smileETag.replace("\"", ""));
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.setAccept(Collections.singletonList(MediaType.parseMediaType(WireFormatConfig.SMILE_VALUE)));
+        revalidate.setIfNoneMatch(jsonResponse.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, restTemplate.exchange(employeeIdUrl, HttpMethod.GET, new HttpEntity<>(revalidate),
+                byte[].class, johnId).getStatusCode());
+        revalidate.setIfNoneMatch(smileETag);
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(employeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(revalidate), byte[].class, johnId).getStatusCode());
+        assertFalse(smileETag.equals(getAs(MediaType.APPLICATION_CBOR_VALUE, employeeIdUrl, johnId).getHeaders().getETag()));
+
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        Employee employee = new Employee();
+        employee.setFirstName("Carsten");
+        HttpHeaders cborHeaders = new HttpHeaders();
+        cborHeaders.setContentType(MediaType.APPLICATION_CBOR);
+        cborHeaders.setAccept(Collections.singletonList(MediaType.APPLICATION_CBOR));
+        ResponseEntity<byte[]> cborResponse = restTemplate.exchange(employeeUrl, HttpMethod.POST,
+                new HttpEntity<>(cbor.writeValueAsBytes(employee), cborHeaders), byte[].class);
+        String carstenId = cbor.readValue(cborResponse.getBody(), Employee.class).getEmployeeId();
+        assertEquals("Carsten", restTemplate.getForObject(employeeIdUrl, Employee.class, carstenId).getFirstName());
+
+        // Compact JSON writes report stubs as ids, but expanded reports in full
+        JsonNode compact = objectMapper.readTree(getAs(WireFormatConfig.COMPACT_JSON_VALUE,
+                employeeIdUrl, johnId).getBody());
+        assertEquals(john.getDirectReports().get(0).getEmployeeId(), compact.get("directReports").get(0).textValue());
+        JsonNode expanded = objectMapper.readTree(getAs(WireFormatConfig.COMPACT_JSON_VALUE,
+                employeeIdUrl + "?expand=directReports", johnId).getBody());
+        assertTrue(expanded.get("directReports").get(0).isObject());
+
+        HttpHeaders compactHeaders = new HttpHeaders();
+        compactHeaders.setContentType(MediaType.parseMediaType(WireFormatConfig.COMPACT_JSON_VALUE));
+        Employee created = restTemplate.postForEntity(employeeUrl, new HttpEntity<>(
+                "{\"firstName\":\"Cora\",\"directReports\":[\"report-compact\"]}", compactHeaders),
+                Employee.class).getBody();
+        assertEquals("report-compact", created.getDirectReports().get(0).getEmployeeId());
+    }
+
+    private ResponseEntity<byte[]> getAs(String accept, String url, Object... uriVariables) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.parseMediaType(accept)));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class, uriVariables);
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        Employee employee = restTemplate.postForEntity(employeeUrl, stub(null), Employee.class).getBody();
+        restTemplate.getForEntity(employeeIdUrl, Employee.class, employee.getEmployeeId());
+        restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class, employee.getEmployeeId());
+        postBulk("{\"firstName\":\"Derek\"}\n", MediaType.parseMediaType("application/x-ndjson"));
+
+        String metrics = restTemplate.getForObject("http://localhost:" + port + "/actuator/prometheus", String.class);
+
+        assertTrue(metrics.contains("repository_invocations_seconds_count{exception=\"none\",method=\"findByEmployeeId\",repository=\"EmployeeRepository\",}"));
+        assertTrue(metrics.contains("reporting_structure_reports_count{traversal=\"index\",}"));
+        assertTrue(metrics.contains("http_server_requests_repository_calls_count{method=\"GET\",uri=\"/employee/{id}\",}"));
+
+        // The bulk import inserts on an async thread, which still counts towards its request
+        String bulkCalls = "http_server_requests_repository_calls_sum{method=\"POST\",uri=\"/employee/bulk\",} ";
+        int start = metrics.indexOf(bulkCalls) + bulkCalls.length();
+        assertTrue(Double.parseDouble(metrics.substring(start, metrics.indexOf('\n', start))) > 0);
+        assertTrue(metrics.contains("http_server_admission_limit{method=\"GET\",uri=\"/employee/{id}\",}"));
+        assertTrue(metrics.contains("http_server_admission_in_flight{method=\"GET\",uri=\"/employee/{id}\",}"));
+    }
+
+    @Test
+    public void testAdmissionControlRejectsSaturatedRoute() throws Exception {
+        // A bulk upload holds its slot until its body ends, so one that has only sent its first line stays in flight
+        int limit = (int) admissionGauge("http.server.admission.limit", 4);
+        List<HttpURLConnection> uploads = new ArrayList<>();
+        List<OutputStream> bodies = new ArrayList<>();
+        try {
+            for (int i = 0; i < limit; i++) {
+                HttpURLConnection upload = (HttpURLConnection) new URL(bulkUrl).openConnection();
+                upload.setRequestMethod("POST");
+                upload.setRequestProperty(HttpHeaders.CONTENT_TYPE, "application/x-ndjson");
+                upload.setDoOutput(true);
+                upload.setChunkedStreamingMode(0);
+                OutputStream body = upload.getOutputStream();
+                body.write("{\"firstName\":\"Neil\"}\n".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                uploads.add(upload);
+                bodies.add(body);
+            }
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (admissionGauge("http.server.admission.in.flight", 0) < limit && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+            ResponseEntity<String> rejected = restTemplate.postForEntity(bulkUrl,
+                    new HttpEntity<>("{\"firstName\":\"Mal\"}\n", headers), String.class);
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+            assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+            // Other routes keep their own limits
+            assertEquals(HttpStatus.OK, restTemplate.getForEntity(employeeIdUrl, Employee.class,
+                    "16a596ae-edd3-4847-99fe-c4518e82c86f").getStatusCode());
+        } finally {
+            for (OutputStream body : bodies) {
+                body.close();
+            }
+        }
+
+        for (HttpURLConnection upload : uploads) {
+            assertEquals(HttpStatus.OK.value(), upload.getResponseCode());
+        }
+    }
+
+    private double admissionGauge(String name, double absent) {
+        Gauge gauge = meterRegistry.find(name).tags("method", "POST", "uri", "/employee/bulk").gauge();
+        return gauge == null ? absent : gauge.value();
+    }
+
     @Test
     public void testCreateCompensationInvalidEmployee() throws IOException {
         insertTestEmployeeData();
@@ -0,0 +1,214 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.MultiGetResult;
+import com.mindex.challenge.data.ReportingStructure;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The EmployeeServiceImplTest contract, served by the reactive stack.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeServiceImplTest {
+
+    private String employeeUrl;
+    private String employeeIdUrl;
+    private String reportingStructureIdUrl;
+    private String compensationUrl;
+    private String compensationReadUrl;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Before
+    public void setup() {
+        employeeUrl = "http://localhost:" + port + "/employee";
+        employeeIdUrl = "http://localhost:" + port + "/employee/{id}";
+        reportingStructureIdUrl = "http://localhost:" + port + "/employee/reporting-structure/{id}";
+        compensationUrl = "http://localhost:" + port + "/employee/compensation";
+        compensationReadUrl = "http://localhost:" + port + "/employee/compensation/{id}";
+    }
+
+    @Test
+    public void testCreateReadUpdate() {
+        Employee testEmployee = new Employee();
+        testEmployee.setFirstName("John");
+        testEmployee.setLastName("Doe");
+        testEmployee.setDepartment("Engineering");
+        testEmployee.setPosition("Developer");
+
+        Employee createdEmployee = restTemplate.postForEntity(employeeUrl, testEmployee, Employee.class).getBody();
+        assertNotNull(createdEmployee.getEmployeeId());
+        assertEmployeeEquivalence(testEmployee, createdEmployee);
+
+        Employee readEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, createdEmployee.getEmployeeId()).getBody();
+        assertEquals(createdEmployee.getEmployeeId(), readEmployee.getEmployeeId());
+        assertEmployeeEquivalence(createdEmployee, readEmployee);
+
+        readEmployee.setPosition("Development Manager");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        Employee updatedEmployee = restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(readEmployee, headers), Employee.class, readEmployee.getEmployeeId()).getBody();
+        assertEmployeeEquivalence(readEmployee, updatedEmployee);
+
+        Employee rereadEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, createdEmployee.getEmployeeId()).getBody();
+        assertEmployeeEquivalence(updatedEmployee, rereadEmployee);
+    }
+
+    @Test
+    public void testConditionalRequests() {
+        Employee employee = new Employee();
+        employee.setFirstName("Mal");
+        employee = restTemplate.postForEntity(employeeUrl, employee, Employee.class).getBody();
+
+        String eTag = restTemplate.getForEntity(employeeIdUrl, Employee.class, employee.getEmployeeId()).getHeaders().getETag();
+        HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.setIfNoneMatch(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(employeeIdUrl, HttpMethod.GET,
+                new HttpEntity<>(conditionalHeaders), Employee.class, employee.getEmployeeId()).getStatusCode());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        employee.setPosition("Road Manager");
+        assertEquals(HttpStatus.OK, restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(employee, headers), Employee.class, employee.getEmployeeId()).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(employee, headers), Employee.class, employee.getEmployeeId()).getStatusCode());
+
+        headers.setIfMatch(eTag);
+        employee.setVersion(null);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, restTemplate.exchange(employeeIdUrl, HttpMethod.PUT,
+                new HttpEntity<>(employee, headers), Employee.class, employee.getEmployeeId()).getStatusCode());
+    }
+
+    @Test
+    public void testReadInvalidEmployee() {
+        ResponseEntity<Employee> response = restTemplate.getForEntity(employeeIdUrl, Employee.class, "NotReal");
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testGenerateReportingStructure() {
+        ReportingStructure lennon = restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+        assertEquals(4, lennon.getNumberOfReports());
+
+        ReportingStructure harrison = restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                "c0c2293d-16bd-4603-8e08-638a9d18b22c").getBody();
+        assertEquals(0, harrison.getNumberOfReports());
+
+        ResponseEntity<ReportingStructure> response =
+                restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class, "NotReal");
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    @Test
+    public void testGenerateReportingStructureAcrossManyChunks() {
+        Employee[] reports = new Employee[200];
+        for (int i = 0; i < reports.length; i++) {
+            Employee report = restTemplate.postForEntity(employeeUrl, new Employee(), Employee.class).getBody();
+            reports[i] = new Employee();
+            reports[i].setEmployeeId(report.getEmployeeId());
+        }
+
+        Employee manager = new Employee();
+        manager.setDirectReports(Arrays.asList(reports));
+        manager = restTemplate.postForEntity(employeeUrl, manager, Employee.class).getBody();
+
+        assertEquals(200, restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                manager.getEmployeeId()).getBody().getNumberOfReports());
+    }
+
+    @Test
+    public void testGenerateReportingStructureCountsSharedReportPerPath() {
+        Employee shared = restTemplate.postForEntity(employeeUrl, new Employee(), Employee.class).getBody();
+        Employee left = restTemplate.postForEntity(employeeUrl, managerOf(shared), Employee.class).getBody();
+        Employee right = restTemplate.postForEntity(employeeUrl, managerOf(shared), Employee.class).getBody();
+        Employee top = restTemplate.postForEntity(employeeUrl, managerOf(left, right), Employee.class).getBody();
+
+        // left, right, and shared once under each, as the servlet stack's index counts it
+        assertEquals(4, restTemplate.getForEntity(reportingStructureIdUrl, ReportingStructure.class,
+                top.getEmployeeId()).getBody().getNumberOfReports());
+    }
+
+    @Test
+    public void testMultiGet() {
+        MultiGetResult<Employee> result = restTemplate.exchange(employeeUrl + "?ids={ids}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<MultiGetResult<Employee>>() {},
+                "16a596ae-edd3-4847-99fe-c4518e82c86f,NotReal").getBody();
+
+        assertEquals(1, result.getFound().size());
+        assertEquals(Arrays.asList("NotReal"), result.getNotFound());
+    }
+
+    @Test
+    public void testCreateReadCompensation() {
+        Compensation compensation = new Compensation();
+        compensation.setEmployee("b7839309-3348-463b-a7e3-5de1c168beb3");
+        compensation.setSalary(95000);
+        compensation.setEffectiveDate(new Date(System.currentTimeMillis() - 1000));
+
+        Compensation created = restTemplate.postForEntity(compensationUrl, compensation, Compensation.class).getBody();
+        assertEquals(compensation.getEmployee(), created.getEmployee());
+
+        Compensation read = restTemplate.getForEntity(compensationReadUrl, Compensation.class, compensation.getEmployee()).getBody();
+        assertEquals(95000, read.getSalary(), 0.01);
+        assertEquals(compensation.getEffectiveDate(), read.getEffectiveDate());
+
+        Compensation[] history = restTemplate.getForEntity(compensationReadUrl + "/history", Compensation[].class,
+                compensation.getEmployee()).getBody();
+        assertEquals(1, history.length);
+
+        Compensation invalid = new Compensation();
+        invalid.setEmployee("NotReal");
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+                restTemplate.postForEntity(compensationUrl, invalid, Compensation.class).getStatusCode());
+    }
+
+    private static Employee managerOf(Employee... reports) {
+        Employee manager = new Employee();
+        manager.setDirectReports(new ArrayList<>());
+        for (Employee report : reports) {
+            Employee stub = new Employee();
+            stub.setEmployeeId(report.getEmployeeId());
+            manager.getDirectReports().add(stub);
+        }
+        return manager;
+    }
+
+    private static void assertEmployeeEquivalence(Employee expected, Employee actual) {
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getDepartment(), actual.getDepartment());
+        assertEquals(expected.getPosition(), actual.getPosition());
+    }
+}
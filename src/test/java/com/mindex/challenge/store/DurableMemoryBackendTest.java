@@ -0,0 +1,199 @@
+package com.mindex.challenge.store;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import de.bwaldvogel.mongo.MongoServer;
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DurableMemoryBackendTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+    private DurableMemoryBackend backend;
+    private MongoServer server;
+    private MongoClient client;
+
+    @Before
+    public void setup() {
+        directory = temporaryFolder.getRoot().toPath();
+    }
+
+    @After
+    public void teardown() {
+        stop();
+    }
+
+    @Test
+    public void testRestartAfterShutdown() {
+        MongoCollection<Document> employees = start();
+        employees.insertOne(new Document("_id", "1").append("firstName", "John").append("position", "Developer"));
+        employees.insertOne(new Document("_id", "2").append("firstName", "Paul"));
+        employees.updateOne(Filters.eq("_id", "1"), Updates.set("position", "Manager"));
+        employees.deleteOne(Filters.eq("_id", "2"));
+        stop();
+
+        employees = start();
+        assertEquals(1, employees.countDocuments());
+        assertEquals("Manager", employees.find(Filters.eq("_id", "1")).first().getString("position"));
+    }
+
+    @Test
+    public void testRecoverFromLogWithoutSnapshot() {
+        MongoCollection<Document> employees = start();
+        employees.insertOne(new Document("_id", "1").append("firstName", "John"));
+        employees.updateOne(Filters.eq("_id", "1"), Updates.set("firstName", "Johnny"));
+
+        // A second backend on the same directory sees what a restart after a crash would: no snapshot, only the log
+        DurableMemoryBackend recovered = new DurableMemoryBackend(directory, 0, false);
+        MongoServer recoveredServer = new MongoServer(recovered);
+        try (MongoClient recoveredClient = MongoClients.create("mongodb:/" + recoveredServer.bind())) {
+            MongoCollection<Document> recoveredEmployees = recoveredClient.getDatabase("test").getCollection("employee");
+            assertEquals("Johnny", recoveredEmployees.find(Filters.eq("_id", "1")).first().getString("firstName"));
+        } finally {
+            recoveredServer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDropTornWrite() throws IOException {
+        MongoCollection<Document> employees = start();
+        employees.insertOne(new Document("_id", "1").append("firstName", "John"));
+        employees.insertOne(new Document("_id", "2").append("firstName", "Paul"));
+        Path log = logFiles().get(0);
+        abandon();
+
+        // Cut the last record short, as a crash part-way through an append would
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(bytes, bytes.length - 10), StandardOpenOption.TRUNCATE_EXISTING);
+
+        employees = start();
+        assertEquals(1, employees.countDocuments());
+        assertNull(employees.find(Filters.eq("_id", "2")).first());
+
+        // New writes go to a new log, so the torn one is never appended to
+        employees.insertOne(new Document("_id", "3").append("firstName", "George"));
+        abandon();
+        employees = start();
+        assertEquals(2, employees.countDocuments());
+    }
+
+    @Test
+    public void testRecoverSnapshotAndLaterWrites() throws IOException {
+        MongoCollection<Document> employees = start();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            documents.add(new Document("_id", Integer.toString(i)).append("index", i));
+        }
+        employees.insertMany(documents);
+        backend.snapshot();
+
+        assertTrue(Files.exists(directory.resolve("snapshot.bson")));
+        assertEquals(1, logFiles().size());
+
+        employees.deleteOne(Filters.eq("_id", "0"));
+        employees.insertOne(new Document("_id", "2500").append("index", 2500));
+        abandon();
+
+        employees = start();
+        assertEquals(2500, employees.countDocuments());
+        assertNull(employees.find(Filters.eq("_id", "0")).first());
+        assertEquals(2500, (int) employees.find(Filters.eq("_id", "2500")).first().getInteger("index"));
+    }
+
+    @Test
+    public void testRecoverInWindowsSmallerThanRecords() throws IOException {
+        MongoCollection<Document> employees = start();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            documents.add(new Document("_id", Integer.toString(i)).append("index", i));
+        }
+        employees.insertMany(documents);
+        backend.snapshot();
+        for (int i = 0; i < 100; i++) {
+            employees.updateOne(Filters.eq("_id", Integer.toString(i)), Updates.set("index", -i));
+        }
+        abandon();
+
+        // Snapshot batches are far larger than the window and log records straddle its edges
+        employees = start(100);
+        assertEquals(1500, employees.countDocuments());
+        assertEquals(-99, (int) employees.find(Filters.eq("_id", "99")).first().getInteger("index"));
+        assertEquals(100, (int) employees.find(Filters.eq("_id", "100")).first().getInteger("index"));
+    }
+
+    @Test
+    public void testReplayWriteThatFailed() {
+        MongoCollection<Document> employees = start();
+        employees.insertOne(new Document("_id", "1").append("firstName", "John"));
+        try {
+            employees.insertOne(new Document("_id", "1").append("firstName", "Paul"));
+            fail("Expected a duplicate key error");
+        } catch (MongoWriteException e) {
+            // The failed insert is logged all the same, and has to fail again rather than stop the replay
+        }
+        employees.updateOne(Filters.eq("_id", "1"), Updates.set("firstName", "Johnny"));
+        abandon();
+
+        employees = start();
+        assertEquals(1, employees.countDocuments());
+        assertEquals("Johnny", employees.find(Filters.eq("_id", "1")).first().getString("firstName"));
+    }
+
+    private MongoCollection<Document> start() {
+        return start(64 * 1024 * 1024);
+    }
+
+    private MongoCollection<Document> start(int readWindowSize) {
+        backend = new DurableMemoryBackend(directory, 0, false, readWindowSize);
+        server = new MongoServer(backend);
+        client = MongoClients.create("mongodb:/" + server.bind());
+        return client.getDatabase("test").getCollection("employee");
+    }
+
+    private void stop() {
+        if (client != null) {
+            client.close();
+            server.shutdown();
+            client = null;
+        }
+    }
+
+    // Stops listening without closing the backend, so no snapshot is written and recovery relies on the log
+    private void abandon() {
+        client.close();
+        server.stopListenting();
+        client = null;
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("log-")).collect(Collectors.toList());
+        }
+    }
+}